@@ -0,0 +1,500 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.Inventory;
+import model.Part;
+import model.Product;
+import model.StockRules;
+import persistence.InventoryStorage;
+import persistence.Json;
+import persistence.JsonCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The InventoryApi class serves the inventory over HTTP as JSON, using the JDK's built-in server.
+ * Each request runs on its own virtual thread when the JDK has them, and on a fixed pool of
+ * platform threads otherwise. Requests call Inventory directly, so the API and the screens
+ * share the same data, and the API does not need the JavaFX toolkit.
+ * <p>
+ * Routes:
+ * <ul>
+ *     <li>GET /parts?name=text or ?prefix=text, GET /parts/{id}, GET /parts/{id}/products</li>
+ *     <li>POST /parts, PUT /parts/{id}, DELETE /parts/{id}</li>
+ *     <li>GET /products?name=text or ?prefix=text, GET /products/{id}, GET /products/{id}/parts</li>
+ *     <li>POST /products, PUT /products/{id}, DELETE /products/{id}</li>
+ *     <li>POST /products/{id}/parts with {"partId": n}, DELETE /products/{id}/parts/{partId}</li>
+ * </ul>
+ * Parts and products use the JsonCodec fields. Errors are returned as {"error": "message"}.
+ * Unexpected failures are logged and answered with a 500 whose message says nothing more.
+ */
+public class InventoryApi {
+
+    private static final System.Logger LOGGER = System.getLogger(InventoryApi.class.getName());
+    private static final int DEFAULT_PORT = 8080;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    /**
+     * The built-in server leaves Nagle's algorithm on, which holds each small keep-alive
+     * response back until the client's delayed ACK, capping a connection at a few dozen
+     * requests per second. It reads this property once, when the first server is created.
+     */
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to an address. It does not accept requests until start is called.
+     * @param address The address to listen on. Port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public InventoryApi(InetSocketAddress address) throws IOException {
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        server = HttpServer.create(address, 1024);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/parts", this::handleParts);
+        server.createContext("/products", this::handleProducts);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits for those in progress to finish.
+     * @param delaySeconds The longest time to wait for requests in progress.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Retrieves the port the server is listening on.
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Runs the API on its own, without the JavaFX screens.
+     * The inventory is loaded from the data directory and checkpointed when the process exits.
+     * @param args An optional port number. The inventory.apiPort system property is used otherwise, then 8080.
+     * @throws IOException If the inventory cannot be loaded or the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("inventory.apiPort", DEFAULT_PORT);
+        InventoryStorage storage = InventoryStorage.open(Inventory.dataDirectory());
+        InventoryApi api = new InventoryApi(new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.stop(1);
+            try {
+                storage.checkpoint();
+                storage.close();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.ERROR, "Could not save the inventory", e);
+            }
+        }, "inventory-api-shutdown"));
+        api.start();
+        LOGGER.log(System.Logger.Level.INFO, "Inventory API listening on port {0}", api.getPort());
+    }
+
+    /**
+     * Creates the executor requests run on: one virtual thread per request where the JDK
+     * supports it, found by reflection so the code still runs on Java 17.
+     * @return The executor.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 4);
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "inventory-api");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handleParts(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = pathSegments(exchange, "/parts");
+            String method = exchange.getRequestMethod();
+            if (path.length == 0) {
+                if (method.equals("GET")) {
+                    Map<String, String> query = query(exchange);
+                    List<Part> parts;
+                    if (query.containsKey("prefix")) {
+                        parts = Inventory.lookupPartsByPrefix(query.get("prefix"));
+                    } else if (query.containsKey("name")) {
+                        parts = Inventory.lookupPart(query.get("name"));
+                    } else {
+                        throw new ApiException(400, "Give a name or prefix to search for.");
+                    }
+                    sendParts(exchange, 200, parts);
+                } else if (method.equals("POST")) {
+                    Map<?, ?> fields = readObject(exchange);
+                    Part part = JsonCodec.readPart(fields, fields.get("id") != null ? JsonCodec.integer(fields, "id") : Inventory.nextPartId());
+                    checkPart(part);
+                    if (!Inventory.addPartIfAbsent(part)) {
+                        throw new ApiException(409, "Part id " + part.getId() + " already exists.");
+                    }
+                    sendPart(exchange, 201, part);
+                } else {
+                    throw new ApiException(405, "Use GET or POST.");
+                }
+                return;
+            }
+            int id = parseId(path[0]);
+            if (path.length == 2 && path[1].equals("products") && method.equals("GET")) {
+                requirePart(id);
+                sendProducts(exchange, 200, Inventory.lookupProductsUsingPart(id));
+                return;
+            }
+            if (path.length != 1) {
+                throw new ApiException(404, "No such resource.");
+            }
+            switch (method) {
+                case "GET":
+                    sendPart(exchange, 200, requirePart(id));
+                    break;
+                case "PUT": {
+                    Part part = JsonCodec.readPart(readObject(exchange), id);
+                    checkPart(part);
+                    if (!Inventory.updatePart(part)) {
+                        throw new ApiException(404, "No part with id " + id + ".");
+                    }
+                    sendPart(exchange, 200, part);
+                    break;
+                }
+                case "DELETE": {
+                    Part part = requirePart(id);
+                    if (!Inventory.deletePartIfUnused(part)) {
+                        if (Inventory.isPartInUse(id)) {
+                            throw new ApiException(409, "Cannot delete a part that is associated with a product.");
+                        }
+                        throw new ApiException(404, "No part with id " + id + ".");
+                    }
+                    send(exchange, 204, null);
+                    break;
+                }
+                default:
+                    throw new ApiException(405, "Use GET, PUT or DELETE.");
+            }
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendInternalError(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleProducts(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = pathSegments(exchange, "/products");
+            String method = exchange.getRequestMethod();
+            if (path.length == 0) {
+                if (method.equals("GET")) {
+                    Map<String, String> query = query(exchange);
+                    List<Product> products;
+                    if (query.containsKey("prefix")) {
+                        products = Inventory.lookupProductsByPrefix(query.get("prefix"));
+                    } else if (query.containsKey("name")) {
+                        products = Inventory.lookupProduct(query.get("name"));
+                    } else {
+                        throw new ApiException(400, "Give a name or prefix to search for.");
+                    }
+                    sendProducts(exchange, 200, products);
+                } else if (method.equals("POST")) {
+                    Map<?, ?> fields = readObject(exchange);
+                    Product product = JsonCodec.readProduct(fields, fields.get("id") != null ? JsonCodec.integer(fields, "id") : Inventory.nextProductId());
+                    checkProduct(product);
+                    List<Integer> partIds = JsonCodec.readPartIds(fields);
+                    if (partIds != null) {
+                        product.getAllAssociatedParts().setAll(resolveParts(partIds));
+                    }
+                    if (!Inventory.addProductIfAbsent(product)) {
+                        throw new ApiException(409, "Product id " + product.getId() + " already exists.");
+                    }
+                    sendProduct(exchange, 201, product);
+                } else {
+                    throw new ApiException(405, "Use GET or POST.");
+                }
+                return;
+            }
+            int id = parseId(path[0]);
+            if (path.length >= 2 && path[1].equals("parts")) {
+                handleAssociatedParts(exchange, method, id, path);
+                return;
+            }
+            if (path.length != 1) {
+                throw new ApiException(404, "No such resource.");
+            }
+            switch (method) {
+                case "GET":
+                    sendProduct(exchange, 200, requireProduct(id));
+                    break;
+                case "PUT": {
+                    Map<?, ?> fields = readObject(exchange);
+                    Product product = JsonCodec.readProduct(fields, id);
+                    checkProduct(product);
+                    List<Integer> partIds = JsonCodec.readPartIds(fields);
+                    List<Part> associatedParts = partIds != null ? resolveParts(partIds) : Inventory.copyAssociatedParts(requireProduct(id));
+                    product.getAllAssociatedParts().setAll(associatedParts);
+                    if (!Inventory.updateProduct(product)) {
+                        throw new ApiException(404, "No product with id " + id + ".");
+                    }
+                    sendProduct(exchange, 200, product);
+                    break;
+                }
+                case "DELETE": {
+                    Product product = requireProduct(id);
+                    if (!Inventory.deleteProductIfEmpty(product)) {
+                        if (Inventory.lookupProduct(id) == product) {
+                            throw new ApiException(409, "Cannot delete a product that has associated parts.");
+                        }
+                        throw new ApiException(404, "No product with id " + id + ".");
+                    }
+                    send(exchange, 204, null);
+                    break;
+                }
+                default:
+                    throw new ApiException(405, "Use GET, PUT or DELETE.");
+            }
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendInternalError(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Handles /products/{id}/parts and /products/{id}/parts/{partId}.
+     * Parts are added to and removed from the product in place through Product, which changes
+     * the list under the inventory's lock, so concurrent requests on one product never lose
+     * each other's changes.
+     */
+    private void handleAssociatedParts(HttpExchange exchange, String method, int productId, String[] path) throws IOException, ApiException {
+        Product product = requireProduct(productId);
+        if (path.length == 2 && method.equals("GET")) {
+            sendParts(exchange, 200, Inventory.copyAssociatedParts(product));
+            return;
+        }
+        if (path.length == 2 && method.equals("POST")) {
+            product.addAssociatedPart(requirePart(JsonCodec.integer(readObject(exchange), "partId")));
+        } else if (path.length == 3 && method.equals("DELETE")) {
+            int partId = parseId(path[2]);
+            Part used = null;
+            for (Part part : Inventory.copyAssociatedParts(product)) {
+                if (part.getId() == partId) {
+                    used = part;
+                    break;
+                }
+            }
+            if (used == null || !product.deleteAssociatedPart(used)) {
+                throw new ApiException(404, "Product " + productId + " does not use part " + partId + ".");
+            }
+        } else {
+            throw new ApiException(405, "Use GET or POST on /products/{id}/parts, or DELETE on /products/{id}/parts/{partId}.");
+        }
+        if (Inventory.lookupProduct(productId) != product) {
+            throw new ApiException(404, "No product with id " + productId + ".");
+        }
+        sendProduct(exchange, 200, product);
+    }
+
+    private static Part requirePart(int id) throws ApiException {
+        Part part = Inventory.lookupPart(id);
+        if (part == null) {
+            throw new ApiException(404, "No part with id " + id + ".");
+        }
+        return part;
+    }
+
+    private static Product requireProduct(int id) throws ApiException {
+        Product product = Inventory.lookupProduct(id);
+        if (product == null) {
+            throw new ApiException(404, "No product with id " + id + ".");
+        }
+        return product;
+    }
+
+    private static List<Part> resolveParts(List<Integer> partIds) throws ApiException {
+        List<Part> parts = new ArrayList<>(partIds.size());
+        for (int partId : partIds) {
+            parts.add(requirePart(partId));
+        }
+        return parts;
+    }
+
+    private static void checkPart(Part part) throws ApiException {
+        checkLevels(part.getName(), part.getStock(), part.getMin(), part.getMax());
+    }
+
+    private static void checkProduct(Product product) throws ApiException {
+        checkLevels(product.getName(), product.getStock(), product.getMin(), product.getMax());
+    }
+
+    private static void checkLevels(String name, int stock, int min, int max) throws ApiException {
+        if (name.isEmpty()) {
+            throw new ApiException(400, StockRules.NAME_REQUIRED);
+        }
+        String levelError = StockRules.checkLevels(stock, min, max);
+        if (levelError != null) {
+            throw new ApiException(400, levelError);
+        }
+    }
+
+    private static String[] pathSegments(HttpExchange exchange, String context) {
+        String rest = exchange.getRequestURI().getPath().substring(context.length());
+        List<String> segments = new ArrayList<>();
+        for (String segment : rest.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private static int parseId(String segment) throws ApiException {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "'" + segment + "' is not an id.");
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static Map<?, ?> readObject(HttpExchange exchange) throws IOException, ApiException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            throw new ApiException(413, "Request body is too large.");
+        }
+        Object value = Json.parse(new String(body, StandardCharsets.UTF_8));
+        if (!(value instanceof Map)) {
+            throw new ApiException(400, "Expected a JSON object.");
+        }
+        return (Map<?, ?>) value;
+    }
+
+    private static void sendPart(HttpExchange exchange, int status, Part part) throws IOException {
+        StringBuilder body = new StringBuilder(160);
+        JsonCodec.appendPart(body, part);
+        send(exchange, status, body);
+    }
+
+    private static void sendProduct(HttpExchange exchange, int status, Product product) throws IOException {
+        StringBuilder body = new StringBuilder(160);
+        JsonCodec.appendProduct(body, product);
+        send(exchange, status, body);
+    }
+
+    private static void sendParts(HttpExchange exchange, int status, List<Part> parts) throws IOException {
+        StringBuilder body = new StringBuilder(16 + parts.size() * 128).append('[');
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            JsonCodec.appendPart(body, parts.get(i));
+        }
+        send(exchange, status, body.append(']'));
+    }
+
+    private static void sendProducts(HttpExchange exchange, int status, List<Product> products) throws IOException {
+        StringBuilder body = new StringBuilder(16 + products.size() * 128).append('[');
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            JsonCodec.appendProduct(body, products.get(i));
+        }
+        send(exchange, status, body.append(']'));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder body = new StringBuilder("{\"error\":");
+        Json.appendString(body, message);
+        send(exchange, status, body.append('}'));
+    }
+
+    /**
+     * Logs an unexpected failure and answers with a 500 that does not describe it, so the
+     * server's internals are not shown to clients.
+     */
+    private static void sendInternalError(HttpExchange exchange, RuntimeException e) throws IOException {
+        LOGGER.log(System.Logger.Level.ERROR, exchange.getRequestMethod() + " " + exchange.getRequestURI() + " failed", e);
+        sendError(exchange, 500, "Internal error.");
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Signals a request that cannot be served, with the HTTP status to answer it with.
+     */
+    private static final class ApiException extends Exception {
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -2,16 +2,13 @@ package controller;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.AnchorPane;
-import javafx.stage.Stage;
 import model.InHouse;
 import model.Inventory;
 import model.Outsourced;
+import model.StockRules;
 
 import java.io.IOException;
 import java.net.URL;
@@ -22,7 +19,7 @@ import java.util.ResourceBundle;
  * Controller that defines the AddPartController class.
  * Allows the user to add Part details.
  */
-public class AddPartController implements Initializable {
+public class AddPartController implements Initializable, ResettableController {
 
     @FXML private Label machineIdOrCompanyName;
     @FXML private TextField InventoryTxt;
@@ -39,8 +36,6 @@ public class AddPartController implements Initializable {
     @FXML private RadioButton partInHouse;
     @FXML private RadioButton partOutsourced;
 
-    Stage stage;
-
     /**
      * Handles the action event when the In-House option is selected.
      * @param event The action event triggered by selecting the In-House option.
@@ -73,11 +68,7 @@ public class AddPartController implements Initializable {
         Optional<ButtonType> result = alert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
-            Parent mainScreen = loader.load();
-            stage.setScene(new Scene(mainScreen));
-            stage.show();
+            ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
         }
     }
 
@@ -96,7 +87,7 @@ public class AddPartController implements Initializable {
             }
 
             if (NameTxt.getText().isEmpty()) {
-                showAlert("Name field must be filled in.");
+                showAlert(StockRules.NAME_REQUIRED);
                 return;
             }
 
@@ -110,38 +101,31 @@ public class AddPartController implements Initializable {
                 return;
             }
 
-            int Id = (int) (Math.random() * 1000);
             String name = NameTxt.getText();
             int stock = Integer.parseInt(InventoryTxt.getText());
             double price = Double.parseDouble(PriceTxt.getText());
             int max = Integer.parseInt(MaxTxt.getText());
             int min = Integer.parseInt(MinTxt.getText());
 
-            if (min > max) {
-                showAlert("Minimum must be less than the Maximum.");
-                return;
-            }
-
-            if (stock < min || stock > max) {
-                showAlert("The inventory must be within the minimum and maximum range.");
+            String levelError = StockRules.checkLevels(stock, min, max);
+            if (levelError != null) {
+                showAlert(levelError);
                 return;
             }
 
             if (partInHouse.isSelected()) {
                 int machineID = Integer.parseInt(MachineIdTxt.getText());
+                // Allocate the id only once every field is valid, so a rejected form does not use one up.
+                int Id = Inventory.nextPartId();
                 InHouse addPart = new InHouse(Id, name, price, stock, min, max, machineID);
                 Inventory.addPart(addPart);
             } else if (partOutsourced.isSelected()) {
                 String companyName = MachineIdTxt.getText();
+                int Id = Inventory.nextPartId();
                 Outsourced addPart = new Outsourced(Id, name, price, stock, min, max, companyName);
                 Inventory.addPart(addPart);
             }
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
-            Parent mainScreen = loader.load();
-            Scene scene = new Scene(mainScreen);
-            Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
+            ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
         } catch (NumberFormatException | IOException e) {
             showAlert("Invalid input format. Please enter valid numeric values.");
         }
@@ -165,4 +149,20 @@ public class AddPartController implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
     }
+
+    /**
+     * Clears the part details entered the last time the screen was shown.
+     */
+    @Override
+    public void resetState() {
+        partIdTxt.clear();
+        NameTxt.clear();
+        InventoryTxt.clear();
+        PriceTxt.clear();
+        MaxTxt.clear();
+        MinTxt.clear();
+        MachineIdTxt.clear();
+        addPartTg.selectToggle(null);
+        machineIdOrCompanyName.setText("Machine ID");
+    }
 }
\ No newline at end of file
@@ -4,19 +4,18 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
+import model.DebouncedSearch;
 import model.Inventory;
 import model.Part;
 import model.Product;
+import model.StockRules;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -25,9 +24,12 @@ import java.util.ResourceBundle;
  * The controller class for the Add Product screen.
  * Allows the user to add a new product to the inventory.
  */
-public class AddProductController implements Initializable {
+public class AddProductController implements Initializable, ResettableController {
 
     private final ObservableList<Part> assocPartList = FXCollections.observableArrayList();
+    private final DebouncedSearch<Part> partSearch =
+            new DebouncedSearch<>(AddProductController::findParts, this::showSearchResults);
+    private boolean alertIfNotFound;
 
     @FXML private TableView<Part> addProductTableView;
     @FXML private TableColumn<Part, Integer> addInvLevelCol;
@@ -46,33 +48,62 @@ public class AddProductController implements Initializable {
     @FXML private TableColumn<?, ?> assocPartNameCol;
     @FXML private TableColumn<?, ?> assocPriceCostCol;
 
-
-    Stage stage;
-
     /**
      * Handles the action event when the search button is clicked.
-     * Searches for parts based on the entered text and populates the table view with the search results.
+     * Searches straight away instead of waiting for a pause in typing, and shows an error if nothing is found.
      *
      * @param event The action event triggered by clicking the search button.
      * @return Nothing.
      */
     @FXML
     void addProductSearch(ActionEvent event) {
-        String searchProductText = addProductSearchBox.getText();
-        ObservableList<Part> outcome = Inventory.lookupPart(searchProductText);
-        try{
-            while(outcome.size() == 0){
-                int partID = Integer.parseInt(searchProductText);
-                outcome.add(Inventory.lookupPart(partID));
+        alertIfNotFound = true;
+        partSearch.searchNow(addProductSearchBox.getText());
+    }
+
+    /**
+     * Finds the parts whose name contains the search text, or the part with that id if no name matches.
+     * Runs on the search thread.
+     *
+     * @param searchProductText The search text.
+     * @return The matching parts, or an empty list if the text is empty.
+     */
+    private static List<Part> findParts(String searchProductText) {
+        if (searchProductText.isEmpty()) {
+            return List.of();
+        }
+        List<Part> outcome = Inventory.lookupPart(searchProductText);
+        if (outcome.isEmpty()) {
+            try {
+                Part part = Inventory.lookupPart(Integer.parseInt(searchProductText.trim()));
+                return part != null ? List.of(part) : List.of();
+            } catch (NumberFormatException e) {
+                return List.of();
             }
-            addProductTableView.setItems(outcome);
-        } catch(NumberFormatException e){
+        }
+        return outcome;
+    }
+
+    /**
+     * Shows the results of a search in the parts table, or every part if the search box is empty.
+     *
+     * @param searchProductText The search text the results are for.
+     * @param outcome           The matching parts.
+     */
+    private void showSearchResults(String searchProductText, List<Part> outcome) {
+        boolean alert = alertIfNotFound;
+        alertIfNotFound = false;
+        if (searchProductText.isEmpty()) {
+            addProductTableView.setItems(Inventory.getAllParts());
+            return;
+        }
+        addProductTableView.setItems(FXCollections.observableArrayList(outcome));
+        if (alert && outcome.isEmpty()) {
             Alert invalidParts = new Alert(Alert.AlertType.ERROR);
             invalidParts.setTitle("Error");
             invalidParts.setContentText("The part you entered was not found.");
             invalidParts.showAndWait();
         }
-
     }
 
     /**
@@ -103,11 +134,7 @@ public class AddProductController implements Initializable {
         Optional<ButtonType> result = alert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
-            Parent mainScreen = loader.load();
-            stage.setScene(new Scene(mainScreen));
-            stage.show();
+            ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
         }
     }
 
@@ -148,11 +175,8 @@ public class AddProductController implements Initializable {
     @FXML
     public void onActionSaveProduct(ActionEvent event){
         try {
-            // Generate a unique ID for the product
-            int uniqueID = (int) (Math.random() * 100);
-
             if(addProductName.getText().isEmpty()){
-                showAlert("Name field must be filled in.");
+                showAlert(StockRules.NAME_REQUIRED);
                 return;
             }
 
@@ -162,17 +186,14 @@ public class AddProductController implements Initializable {
             int max = Integer.parseInt(addProductMax.getText());
             int min = Integer.parseInt(addProductMin.getText());
 
-            if (min > max) {
-                showAlert("Minimum must be less than the Maximum.");
-                return;
-            }
-
-
-            if (stock < min || stock > max) {
-                showAlert("The inventory must be within the minimum and maximum range.");
+            String levelError = StockRules.checkLevels(stock, min, max);
+            if (levelError != null) {
+                showAlert(levelError);
                 return;
             }
 
+            // Generate a unique ID for the product
+            int uniqueID = Inventory.nextProductId();
             Product product = new Product(uniqueID, name, price, stock, min, max);
 
             for (Part part : assocPartList) {
@@ -180,13 +201,9 @@ public class AddProductController implements Initializable {
             }
 
             // Add the product to the Inventory
-            Inventory.getAllProducts().add(product);
+            Inventory.addProduct(product);
 
-            Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
-            Parent mainScreen = loader.load();
-            stage.setScene(new Scene(mainScreen));
-            stage.show();
+            ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
         } catch (NumberFormatException | IOException e) {
             showAlert("Invalid input format. Please enter valid numeric values.");
         }
@@ -217,6 +234,7 @@ public class AddProductController implements Initializable {
         addPartNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
         addInvLevelCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
         addPriceCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        addProductSearchBox.textProperty().addListener((observable, oldText, newText) -> partSearch.search(newText));
 
         //Add parts to associated parts table (bottom).
         assocPartTableView.setItems(assocPartList);
@@ -225,4 +243,22 @@ public class AddProductController implements Initializable {
         assocInvCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
         assocPriceCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
     }
+
+    /**
+     * Clears the product details, associated parts and search entered the last time the screen was shown.
+     */
+    @Override
+    public void resetState() {
+        addProductName.clear();
+        addProductInv.clear();
+        addProductPrice.clear();
+        addProductMax.clear();
+        addProductMin.clear();
+        assocPartList.clear();
+        addProductSearchBox.clear();
+        partSearch.cancel();
+        alertIfNotFound = false;
+        addProductTableView.setItems(Inventory.getAllParts());
+        addProductTableView.getSelectionModel().clearSelection();
+    }
 }
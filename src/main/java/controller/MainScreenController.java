@@ -1,32 +1,37 @@
 package controller;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.AnchorPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import model.FilteredListView;
 import model.Inventory;
 import model.Part;
 import model.Product;
+import model.SortedListView;
+import persistence.InventoryExporter;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 
 /**
  * The MainScreenController class controls the main screen of the application.
  * It implements the Initializable interface for initialization after loading the FXML file.
  */
-public class MainScreenController implements Initializable {
+public class MainScreenController implements Initializable, ResettableController {
 
     @FXML private AnchorPane IMSTableView;
     @FXML private Button addPartButton;
@@ -34,6 +39,8 @@ public class MainScreenController implements Initializable {
     @FXML private Button deletePartButton;
     @FXML private Button deleteProductButton;
     @FXML private Button exitMain;
+    @FXML private Button exportButton;
+    @FXML private ProgressBar exportProgress;
     @FXML private TableView<Part> mainScreenPartsTable;
     @FXML private TableColumn<Part, Integer> partIDCol;
     @FXML private TableColumn<Part, Integer> partInventoryCol;
@@ -45,6 +52,7 @@ public class MainScreenController implements Initializable {
     @FXML private TextField partSearchBox;
     @FXML private Label partTable;
     @FXML private AnchorPane partTableView;
+    @FXML private TableColumn<Product, Integer> productBuildableCol;
     @FXML private TableColumn<Product, Integer> productIDCol;
     @FXML private TableColumn<Product, Integer> productInventoryCol;
     @FXML private TableColumn<Product, String> productNameCol;
@@ -53,7 +61,10 @@ public class MainScreenController implements Initializable {
     @FXML private Label productTable;
     @FXML private AnchorPane productTableView;
 
-    Stage stage;
+    private final FilteredListView<Part> filteredParts = new FilteredListView<>(Inventory.getSortedParts());
+    private final FilteredListView<Product> filteredProducts = new FilteredListView<>(Inventory.getSortedProducts());
+    private String partNameFilter;
+    private String productNameFilter;
 
     /**
      * Initializes the main screen controller.
@@ -71,9 +82,41 @@ public class MainScreenController implements Initializable {
         productNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
         productInventoryCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
         productPriceCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        productBuildableCol.setCellValueFactory(cell -> Inventory.buildableQuantityProperty(cell.getValue()).asObject());
 
-        mainScreenPartsTable.setItems(Inventory.getAllParts());
-        mainScreenProductsTable.setItems(Inventory.getAllProducts());
+        mainScreenPartsTable.setItems(filteredParts);
+        mainScreenProductsTable.setItems(filteredProducts);
+        mainScreenPartsTable.setSortPolicy(table -> sortTable(table, Inventory.getSortedParts()));
+        mainScreenProductsTable.setSortPolicy(table -> sortTable(table, Inventory.getSortedProducts()));
+
+        partSearchBox.textProperty().addListener((observable, oldText, newText) -> filterParts(newText.trim()));
+        productSearchBox.textProperty().addListener((observable, oldText, newText) -> filterProducts(newText.trim()));
+    }
+
+    /**
+     * Sorts a table by switching the sorted view under its search filter to the order of the
+     * first sort column, so clicking a column header does not sort the rows again.
+     * @param table The table to sort.
+     * @param view  The sorted view the table's filter shows.
+     * @param <S>   The type of row.
+     * @return True if the table was sorted, false otherwise.
+     */
+    private static <S> boolean sortTable(TableView<S> table, SortedListView<S> view) {
+        if (table.getSortOrder().isEmpty()) {
+            view.unsort();
+            return true;
+        }
+        TableColumn<S, ?> column = table.getSortOrder().get(0);
+        Object cellValueFactory = column.getCellValueFactory();
+        if (!(cellValueFactory instanceof PropertyValueFactory<?, ?> factory)) {
+            return false;
+        }
+        String order = factory.getProperty();
+        if (!view.hasOrder(order)) {
+            return false;
+        }
+        view.sortBy(order, column.getSortType() == TableColumn.SortType.ASCENDING);
+        return true;
     }
 
     /**
@@ -84,10 +127,7 @@ public class MainScreenController implements Initializable {
      */
     @FXML
     void mainScreenAddPartsButton(ActionEvent event) throws IOException {
-        stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-        Parent addPart = FXMLLoader.load(getClass().getResource("/view/AddPart.fxml"));
-        stage.setScene(new Scene(addPart));
-        stage.show();
+        ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.ADD_PART);
 
         System.out.println("add part");
     }
@@ -100,17 +140,14 @@ public class MainScreenController implements Initializable {
      */
     @FXML
     void mainScreenAddProductsButton(ActionEvent event) throws IOException {
-        stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-        Parent addPart = FXMLLoader.load(getClass().getResource("/view/AddProduct.fxml"));
-        stage.setScene(new Scene(addPart));
-        stage.show();
+        ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.ADD_PRODUCT);
 
         System.out.println("add Prod");
     }
 
     /**
      * Handles the event when the "Delete" button for products is clicked.
-     * Deletes the selected product from the inventory.
+     * Deletes the selected product from the inventory unless it has associated parts.
      * @param event The event representing the action of clicking the button.
      * @throws IOException If an error occurs during the deletion of the product.
      */
@@ -131,14 +168,12 @@ public class MainScreenController implements Initializable {
         Optional<ButtonType> result = confirmationAlert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (chosenProduct.getAllAssociatedParts().size() > 0) {
+            if (!Inventory.deleteProductIfEmpty(chosenProduct)) {
                 Alert notAllowedDelete = new Alert(Alert.AlertType.ERROR);
                 notAllowedDelete.setTitle("Error");
                 notAllowedDelete.setContentText("ERROR: Cannot delete a product with associated parts.");
                 notAllowedDelete.showAndWait();
-                return;
             }
-            Inventory.deleteProduct(chosenProduct);
         }
     }
 
@@ -150,26 +185,18 @@ public class MainScreenController implements Initializable {
      */
     @FXML
     void mainScreenModifyPartsButton(ActionEvent event) throws IOException {
-        try {
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(getClass().getResource("/view/ModifyPart.fxml"));
-            loader.load();
-
-            ModifyPartController MPController = loader.getController();
-            Part selectedPart = mainScreenPartsTable.getSelectionModel().getSelectedItem();
-            int selectedIndex = mainScreenPartsTable.getSelectionModel().getSelectedIndex();
-            MPController.deliverPartDetails(selectedIndex, selectedPart);
-
-            stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-            Parent scene = loader.getRoot();
-            stage.setScene(new Scene(scene));
-            stage.show();
-        } catch (NullPointerException e) {
+        Part selectedPart = mainScreenPartsTable.getSelectionModel().getSelectedItem();
+        if (selectedPart == null) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("Error");
             alert.setContentText("Error: Select a part first");
             alert.show();
+            return;
         }
+        // The table shows a sorted, filtered view, so find the part's index in the inventory itself.
+        int selectedIndex = Inventory.getAllParts().indexOf(selectedPart);
+        ModifyPartController MPController = ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MODIFY_PART);
+        MPController.deliverPartDetails(selectedIndex, selectedPart);
     }
 
     /**
@@ -187,15 +214,9 @@ public class MainScreenController implements Initializable {
                 alert.setTitle("Error");
                 alert.showAndWait();
             } else {
-                FXMLLoader loader = new FXMLLoader();
-                loader.setLocation(getClass().getResource("/view/ModifyProduct.fxml"));
-                loader.load();
-                ModifyProductController modProductController = loader.getController();
+                ModifyProductController modProductController =
+                        ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MODIFY_PRODUCT);
                 modProductController.deliverProductDetails(mainScreenProductsTable.getSelectionModel().getSelectedItem());
-                stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-                Parent scene = loader.getRoot();
-                stage.setScene(new Scene(scene));
-                stage.show();
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -204,7 +225,7 @@ public class MainScreenController implements Initializable {
 
     /**
      * Handles the event when the "Delete" button for parts is clicked.
-     * Deletes the selected part from the inventory.
+     * Deletes the selected part from the inventory unless a product uses it.
      * @param event The event representing the action of clicking the button.
      * @throws IOException If an error occurs during the deletion of the part.
      */
@@ -222,16 +243,12 @@ public class MainScreenController implements Initializable {
             Optional<ButtonType> result = confirmationAlert.showAndWait();
 
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-                Parent scene = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-                stage.setScene(new Scene(scene));
-                stage.show();
-                Inventory.deletePart(part);
-            } else {
-                Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-                Parent scene = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-                stage.setScene(new Scene(scene));
-                stage.show();
+                if (!Inventory.deletePartIfUnused(part)) {
+                    Alert notAllowedDelete = new Alert(Alert.AlertType.ERROR);
+                    notAllowedDelete.setTitle("Error");
+                    notAllowedDelete.setContentText("ERROR: Cannot delete a part that is associated with a product.");
+                    notAllowedDelete.showAndWait();
+                }
             }
         }
     }
@@ -248,38 +265,90 @@ public class MainScreenController implements Initializable {
     }
 
     /**
-     * Handles the event when the search button for parts is clicked.
-     * Performs a search based on the entered search term and displays the results in the parts table.
-     * @param event The event representing the action of clicking the search button.
+     * Handles the event when the "Export" button is clicked.
+     * Asks for a file and writes the whole inventory to it on a background thread,
+     * showing progress in the progress bar. A file ending in .json is written as JSON,
+     * anything else as CSV.
+     * @param event The event representing the action of clicking the button.
+     */
+    @FXML
+    void mainScreenExportButton(ActionEvent event) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Inventory");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON files", "*.json"));
+        File file = chooser.showSaveDialog(((Node) event.getSource()).getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        InventoryExporter.Format format = file.getName().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? InventoryExporter.Format.JSON : InventoryExporter.Format.CSV;
+        Task<Long> export = new Task<>() {
+            @Override
+            protected Long call() throws IOException {
+                return new InventoryExporter(format).export(file.toPath(), this::updateProgress);
+            }
+        };
+        exportProgress.progressProperty().bind(export.progressProperty());
+        exportProgress.setVisible(true);
+        exportButton.setDisable(true);
+        export.setOnSucceeded(done -> {
+            finishExport();
+            new Alert(Alert.AlertType.INFORMATION, "Exported " + export.getValue() + " rows to " + file.getName() + ".").show();
+        });
+        export.setOnFailed(failed -> {
+            finishExport();
+            new Alert(Alert.AlertType.ERROR, "ERROR: Export failed. " + export.getException().getMessage()).show();
+        });
+        Thread thread = new Thread(export, "inventory-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hides the export progress bar and enables the "Export" button again.
+     */
+    private void finishExport() {
+        exportProgress.progressProperty().unbind();
+        exportProgress.setVisible(false);
+        exportButton.setDisable(false);
+    }
+
+    /**
+     * Handles the event when Enter is pressed in the part search box.
+     * The table is already filtered as the user types, so this only warns if nothing matches.
+     * @param event The event representing the action of pressing Enter.
      */
     @FXML
     void mainScreenPartSearch(ActionEvent event) {
         String searchTerm = partSearchBox.getText().trim();
+        filterParts(searchTerm);
+        if (!searchTerm.isEmpty() && filteredParts.isEmpty()) {
+            Alert alertDialog = new Alert(Alert.AlertType.INFORMATION);
+            alertDialog.setTitle("Warning Dialog");
+            alertDialog.setContentText("ERROR: No parts found matching the search term.");
+            alertDialog.showAndWait();
+        }
+    }
 
+    /**
+     * Filters the parts table as the user types, showing the part with the term as its id if the
+     * term is a number, otherwise the parts whose name starts with it, ignoring case.
+     * Each part is tested against the term itself, so the filtered list keeps the table up to
+     * date as parts are added, edited and deleted. A name that extends the previous name only
+     * re-checks the parts already shown.
+     * @param searchTerm The trimmed search term.
+     */
+    private void filterParts(String searchTerm) {
+        String previous = partNameFilter;
+        partNameFilter = searchTerm.isEmpty() || parseId(searchTerm) != null ? null : searchTerm;
         if (searchTerm.isEmpty()) {
-            resetPartsTable();
+            filteredParts.setPredicate(null);
+        } else if (partNameFilter != null && previous != null && startsWithIgnoreCase(searchTerm, previous)) {
+            filteredParts.narrow(matcher(searchTerm, Part::getId, Part::getName));
         } else {
-            ObservableList<Part> searchResults = FXCollections.observableArrayList();
-            try {
-                int partId = Integer.parseInt(searchTerm);
-                Part foundPart = Inventory.lookupPart(partId);
-                if (foundPart != null) {
-                    searchResults.add(foundPart);
-                }
-            } catch (NumberFormatException e) {
-                for (Part part : Inventory.getAllParts()) {
-                    if (part.getName().toLowerCase().startsWith(searchTerm.toLowerCase())) {
-                        searchResults.add(part);
-                    }
-                }
-            }
-            mainScreenPartsTable.setItems(searchResults);
-            if (searchResults.isEmpty()) {
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Warning Dialog");
-                alert.setContentText("ERROR: No parts found matching the search term.");
-                alert.showAndWait();
-            }
+            filteredParts.setPredicate(matcher(searchTerm, Part::getId, Part::getName));
         }
     }
 
@@ -290,45 +359,80 @@ public class MainScreenController implements Initializable {
     @FXML
     void resetPartsTable() {
         partSearchBox.setText("");
-        mainScreenPartsTable.setItems(Inventory.getAllParts());
     }
 
     /**
-     * Handles the event when the search button for products is clicked.
-     * Performs a search based on the entered search term and displays the results in the products table.
-     * @param event The event representing the action of clicking the search button.
+     * Handles the event when Enter is pressed in the product search box.
+     * The table is already filtered as the user types, so this only warns if nothing matches.
+     * @param event The event representing the action of pressing Enter.
      */
     @FXML
     void mainScreenProductSearch(ActionEvent event) {
         String searchTerm = productSearchBox.getText().trim();
+        filterProducts(searchTerm);
+        if (!searchTerm.isEmpty() && filteredProducts.isEmpty()) {
+            Alert alertDialog = new Alert(Alert.AlertType.INFORMATION);
+            alertDialog.setTitle("Warning Dialog");
+            alertDialog.setContentText("ERROR: No products found matching the search term.");
+            alertDialog.showAndWait();
+        }
+    }
 
+    /**
+     * Filters the products table as the user types, as filterParts does for parts.
+     * @param searchTerm The trimmed search term.
+     */
+    private void filterProducts(String searchTerm) {
+        String previous = productNameFilter;
+        productNameFilter = searchTerm.isEmpty() || parseId(searchTerm) != null ? null : searchTerm;
         if (searchTerm.isEmpty()) {
-            resetProductTable();
+            filteredProducts.setPredicate(null);
+        } else if (productNameFilter != null && previous != null && startsWithIgnoreCase(searchTerm, previous)) {
+            filteredProducts.narrow(matcher(searchTerm, Product::getId, Product::getName));
         } else {
-            ObservableList<Product> searchResults = FXCollections.observableArrayList();
-            try {
-                int productId = Integer.parseInt(searchTerm);
-                Product foundProduct = Inventory.lookupProduct(productId);
-                if (foundProduct != null) {
-                    searchResults.add(foundProduct);
-                }
-            } catch (NumberFormatException e) {
-                for (Product product : Inventory.getAllProducts()) {
-                    if (product.getName().toLowerCase().startsWith(searchTerm.toLowerCase())) {
-                        searchResults.add(product);
-                    }
-                }
-            }
-            mainScreenProductsTable.setItems(searchResults);
-            productSearchBox.setText("");
+            filteredProducts.setPredicate(matcher(searchTerm, Product::getId, Product::getName));
+        }
+    }
 
-            if (searchResults.isEmpty()) {
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Warning Dialog");
-                alert.setContentText("ERROR: No products found matching the search term.");
-                alert.showAndWait();
-            }
+    /**
+     * Creates the test a search term applies to each row: an id match if the term is a number,
+     * otherwise a name that starts with the term, ignoring case.
+     * @param searchTerm The trimmed, non-empty search term.
+     * @param idOf       Reads an item's id.
+     * @param nameOf     Reads an item's name.
+     * @param <E>        The type of item.
+     * @return The predicate.
+     */
+    private static <E> Predicate<E> matcher(String searchTerm, ToIntFunction<E> idOf, Function<E, String> nameOf) {
+        Integer id = parseId(searchTerm);
+        if (id != null) {
+            int wanted = id;
+            return item -> idOf.applyAsInt(item) == wanted;
         }
+        return item -> startsWithIgnoreCase(nameOf.apply(item), searchTerm);
+    }
+
+    /**
+     * Parses a search term as an id.
+     * @param searchTerm The trimmed search term.
+     * @return The id, or null if the term is not a number.
+     */
+    private static Integer parseId(String searchTerm) {
+        try {
+            return Integer.parseInt(searchTerm);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether text starts with a prefix, ignoring case, without copying either string.
+     * @param text   The text to check.
+     * @param prefix The prefix.
+     * @return True if the text starts with the prefix, false otherwise.
+     */
+    private static boolean startsWithIgnoreCase(String text, String prefix) {
+        return text.regionMatches(true, 0, prefix, 0, prefix.length());
     }
 
     /**
@@ -338,7 +442,17 @@ public class MainScreenController implements Initializable {
     @FXML
     void resetProductTable() {
         productSearchBox.setText("");
-        mainScreenProductsTable.setItems(Inventory.getAllProducts());
         mainScreenProductsTable.getSelectionModel().clearSelection();
     }
+
+    /**
+     * Clears both searches and selections when the main screen is shown again.
+     * The tables show the inventory's lists, so they are already up to date.
+     */
+    @Override
+    public void resetState() {
+        resetPartsTable();
+        mainScreenPartsTable.getSelectionModel().clearSelection();
+        resetProductTable();
+    }
 }
\ No newline at end of file
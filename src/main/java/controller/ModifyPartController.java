@@ -1,17 +1,14 @@
 package controller;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.text.Text;
-import javafx.stage.Stage;
 import model.InHouse;
 import model.Inventory;
 import model.Outsourced;
 import model.Part;
+import model.StockRules;
 
 import java.io.IOException;
 
@@ -19,7 +16,7 @@ import java.io.IOException;
  * The controller class for the Modify Part screen.
  * Allows the user to modify an existing part's details.
  */
-public class ModifyPartController {
+public class ModifyPartController implements ResettableController {
     @FXML public ToggleGroup modParts;
     @FXML private RadioButton modInHouse;
     @FXML private RadioButton modOutSource;
@@ -34,7 +31,6 @@ public class ModifyPartController {
     @FXML private Text machIdOrCompName;
 
     private int presentIndex = 0;
-    public Stage stage;
 
     /**
      * Handles the action event when the Cancel button is clicked.
@@ -44,10 +40,7 @@ public class ModifyPartController {
      */
     @FXML
     void onActionCancelMod(ActionEvent event) throws IOException {
-        stage = (Stage)((Button)event.getSource()).getScene().getWindow();
-        Parent addPart = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-        stage.setScene(new Scene(addPart));
-        stage.show();
+        ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
     }
 
     /**
@@ -88,7 +81,7 @@ public class ModifyPartController {
             int min = Integer.parseInt(modPartMin.getText());
             //Name field must be filled in.
             if (name.isEmpty()) {
-                showAlert("Name field must be filled in.");
+                showAlert(StockRules.NAME_REQUIRED);
                 return;
             }
             //Min field must be filled in.
@@ -101,14 +94,9 @@ public class ModifyPartController {
                 showAlert("Max field must be filled in.");
                 return;
             }
-            //Min should be less than the max.
-            if (min > max) {
-                showAlert("Minimum must be less than the Maximum.");
-                return;
-            }
-            //Inventory must be within the Min and Max range.
-            else if (stock < min || stock > max) {
-                showAlert("The inventory must be within the minimum and maximum range.");
+            String levelError = StockRules.checkLevels(stock, min, max);
+            if (levelError != null) {
+                showAlert(levelError);
                 return;
             }
 
@@ -125,11 +113,7 @@ public class ModifyPartController {
                 Inventory.updatePart(presentIndex, updatedPart);
             }
 
-            Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-            Object scene = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-            stage.setScene(new Scene((Parent) scene));
-            stage.show();
-
+            ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
         }   catch (NumberFormatException | IOException e) {
             showAlert("Invalid input format. Please enter valid numeric values.");
         }
@@ -172,4 +156,18 @@ public class ModifyPartController {
         }
     }
 
+    /**
+     * Clears the part details shown the last time the screen was shown.
+     */
+    @Override
+    public void resetState() {
+        presentIndex = 0;
+        modPartId.clear();
+        modPartName.clear();
+        modPartInv.clear();
+        modPartPrice.clear();
+        modPartMax.clear();
+        modPartMin.clear();
+        modPartMachineId.clear();
+    }
 }
\ No newline at end of file
@@ -4,19 +4,18 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
+import model.DebouncedSearch;
 import model.Inventory;
 import model.Part;
 import model.Product;
+import model.StockRules;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -24,7 +23,7 @@ import java.util.ResourceBundle;
  * The controller class for the Modify Product screen.
  * Allows the user to modify an existing product's details.
  */
-public class ModifyProductController implements Initializable {
+public class ModifyProductController implements Initializable, ResettableController {
     @FXML private TableColumn<Part, Integer> modAssocInvLevel;
     @FXML private TableColumn<Part, Integer> modAssocPartId;
     @FXML private TableColumn<Part, String> modAssocPartName;
@@ -44,11 +43,12 @@ public class ModifyProductController implements Initializable {
     @FXML private TableView<Part> modProductTableView;
 
     private ObservableList<Part> assocPartList = FXCollections.observableArrayList();
+    private final DebouncedSearch<Part> partSearch =
+            new DebouncedSearch<>(ModifyProductController::findParts, this::showSearchResults);
+    private boolean alertIfNotFound;
     private Product swapProduct;
     private int currentIndex = 0;
 
-    private Stage stage;
-
     /**
      * Sets the product to be modified.
      * @param product The product to be modified.
@@ -66,10 +66,7 @@ public class ModifyProductController implements Initializable {
      */
     @FXML
     void onActionCancelAssoc(ActionEvent event) throws IOException {
-        stage = (Stage)((Button)event.getSource()).getScene().getWindow();
-        Parent addPart = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-        stage.setScene(new Scene(addPart));
-        stage.show();
+        ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
     }
 
     /**
@@ -118,7 +115,7 @@ public class ModifyProductController implements Initializable {
 
     /**
      * Handles the action event when the Search button is clicked.
-     * Searches for a part based on the entered part ID or name.
+     * Searches straight away instead of waiting for a pause in typing, and shows an error if nothing is found.
      * @param event The action event triggered by the Search button.
      */
     @FXML
@@ -130,41 +127,69 @@ public class ModifyProductController implements Initializable {
             return;
         }
 
-        try {
-            int searchId = Integer.parseInt(searchText);
-            Part foundPart = Inventory.lookupPart(searchId);
+        alertIfNotFound = true;
+        partSearch.searchNow(searchText);
+    }
 
+    /**
+     * Finds the part with the entered ID, or failing that the parts whose name starts with it,
+     * ignoring case, so a search matches while the name is still being typed. The names are
+     * read from the name index rather than by checking every part. Runs on the search thread.
+     * @param searchText The trimmed search text.
+     * @return The matching parts, or an empty list if the text is empty.
+     */
+    private static List<Part> findParts(String searchText) {
+        if (searchText.isEmpty()) {
+            return List.of();
+        }
+        Integer searchId = parseId(searchText);
+        if (searchId != null) {
+            Part foundPart = Inventory.lookupPart(searchId);
             if (foundPart != null) {
-                selectAndScrollToPart(foundPart);
-            } else {
-                searchByName(searchText);
+                return List.of(foundPart);
             }
-        } catch (NumberFormatException e) {
-            searchByName(searchText);
         }
+        return Inventory.lookupPartsByPrefix(searchText);
     }
 
     /**
-     * Searches for a part by name and updates the table view accordingly.
-     * @param searchText The name of the part to search for.
-     * @throws UnsupportedOperationException if no part is found with the specified ID or name.
+     * Shows the results of a search. A part found by ID is selected in the full parts table,
+     * and parts found by name replace the table's contents.
+     * @param searchText    The search text the results are for.
+     * @param matchingParts The matching parts.
      */
-    private void searchByName(String searchText) {
-        ObservableList<Part> parts = Inventory.getAllParts();
-        ObservableList<Part> matchingParts = FXCollections.observableArrayList();
-
-        for (Part part : parts) {
-            if (part.getName().equalsIgnoreCase(searchText)) {
-                matchingParts.add(part);
-            }
+    private void showSearchResults(String searchText, List<Part> matchingParts) {
+        boolean alert = alertIfNotFound;
+        alertIfNotFound = false;
+        if (searchText.isEmpty()) {
+            modProductTableView.setItems(Inventory.getAllParts());
+            return;
         }
-
+        Integer searchId = parseId(searchText);
+        if (matchingParts.size() == 1 && searchId != null && matchingParts.get(0).getId() == searchId) {
+            modProductTableView.setItems(Inventory.getAllParts());
+            selectAndScrollToPart(matchingParts.get(0));
+            return;
+        }
+        modProductTableView.setItems(FXCollections.observableArrayList(matchingParts));
         if (!matchingParts.isEmpty()) {
-            modProductTableView.setItems(matchingParts);
             modProductTableView.getSelectionModel().selectFirst();
             modProductTableView.scrollTo(0);
-        } else {
-            throw new UnsupportedOperationException("No part found with the specified ID or name.");
+        } else if (alert) {
+            showAlert("No part found with the specified ID or name.");
+        }
+    }
+
+    /**
+     * Reads search text as a part ID.
+     * @param searchText The search text.
+     * @return The ID, or null if the text is not a number.
+     */
+    private static Integer parseId(String searchText) {
+        try {
+            return Integer.parseInt(searchText);
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
@@ -186,7 +211,7 @@ public class ModifyProductController implements Initializable {
     void onActionSaveAssoc(ActionEvent event) {
         try {
             if (modProductName.getText().isEmpty()) {
-                showAlert("Name field must be filled in.");
+                showAlert(StockRules.NAME_REQUIRED);
                 return;
             }
 
@@ -207,13 +232,9 @@ public class ModifyProductController implements Initializable {
             int max = Integer.parseInt(modProductMax.getText());
             int min = Integer.parseInt(modProductMin.getText());
 
-            if (min > max) {
-                showAlert("Minimum must be less than the Maximum.");
-                return;
-            }
-
-            if (inventory < min || inventory > max) {
-                showAlert("The inventory must be within the minimum and maximum range.");
+            String levelError = StockRules.checkLevels(inventory, min, max);
+            if (levelError != null) {
+                showAlert(levelError);
                 return;
             }
 
@@ -227,13 +248,7 @@ public class ModifyProductController implements Initializable {
                 revisedProduct.addAssociatedPart(part);
             }
 
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
-            Parent mainScreen = loader.load();
-            Scene scene = new Scene(mainScreen);
-            Stage stage = (Stage) ((Button) event.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.show();
-
+            ScreenManager.show((Button) event.getSource(), ScreenManager.Screen.MAIN);
         } catch (NumberFormatException | IOException e) {
             showAlert("Invalid input format. Please enter valid numeric values.");
         }
@@ -282,6 +297,7 @@ public class ModifyProductController implements Initializable {
         modPartName.setCellValueFactory(new PropertyValueFactory<>("name"));
         modInvLevel.setCellValueFactory(new PropertyValueFactory<>("stock"));
         modPricePerUnit.setCellValueFactory(new PropertyValueFactory<>("price"));
+        modSearchPartId.textProperty().addListener((observable, oldText, newText) -> partSearch.search(newText.trim()));
 
         // Initialize assocPartList
         assocPartList = FXCollections.observableArrayList();
@@ -293,4 +309,26 @@ public class ModifyProductController implements Initializable {
         modAssocInvLevel.setCellValueFactory(new PropertyValueFactory<>("stock"));
         modAssocPricePerUnit.setCellValueFactory(new PropertyValueFactory<>("price"));
     }
+
+    /**
+     * Clears the product, associated parts and search shown the last time the screen was shown,
+     * so the next product's associated parts are not added to the previous product's.
+     */
+    @Override
+    public void resetState() {
+        swapProduct = null;
+        currentIndex = 0;
+        modProductId.clear();
+        modProductName.clear();
+        modProductInv.clear();
+        modProductPrice.clear();
+        modProductMax.clear();
+        modProductMin.clear();
+        assocPartList.clear();
+        modSearchPartId.clear();
+        partSearch.cancel();
+        alertIfNotFound = false;
+        modProductTableView.setItems(Inventory.getAllParts());
+        modProductTableView.getSelectionModel().clearSelection();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package controller;
+
+/**
+ * The ResettableController interface is implemented by controllers whose screen is kept and
+ * shown again by ScreenManager rather than loaded fresh each time.
+ */
+public interface ResettableController {
+
+    /**
+     * Puts the screen back the way it looks when first loaded, clearing whatever the user
+     * entered the last time it was shown. Called by ScreenManager each time it shows a screen
+     * that was already loaded, before the screen is given any data to display.
+     */
+    void resetState();
+}
@@ -0,0 +1,136 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The ScreenManager class switches the application window between its screens.
+ * Each screen's FXML is parsed once, and its scene and controller are kept and shown again
+ * the next time the screen is asked for. A controller that implements ResettableController is
+ * reset before its screen is shown again, so it starts out empty as if it had just been loaded.
+ * preload loads screens ahead of time, one per event on the JavaFX application thread so the
+ * window keeps responding while it works. The screens' controllers bind tables to the
+ * inventory's lists, which belong to that thread, so screens are not loaded on other threads.
+ * All methods must be called on the JavaFX application thread.
+ */
+public final class ScreenManager {
+
+    /**
+     * The Screen enum lists the screens of the application and where their FXML is.
+     */
+    public enum Screen {
+        MAIN("/view/MainScreen.fxml", 888, 365),
+        ADD_PART("/view/AddPart.fxml"),
+        MODIFY_PART("/view/ModifyPart.fxml"),
+        ADD_PRODUCT("/view/AddProduct.fxml"),
+        MODIFY_PRODUCT("/view/ModifyProduct.fxml");
+
+        private final String fxml;
+        private final double width;
+        private final double height;
+
+        Screen(String fxml) {
+            this(fxml, -1, -1);
+        }
+
+        Screen(String fxml, double width, double height) {
+            this.fxml = fxml;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final System.Logger LOGGER = System.getLogger(ScreenManager.class.getName());
+    private static final Map<Screen, Loaded> screens = new EnumMap<>(Screen.class);
+
+    private ScreenManager() {
+    }
+
+    /**
+     * Shows a screen in the window that holds a node, such as the button that was clicked.
+     * @param source A node in the window to use.
+     * @param screen The screen to show.
+     * @param <C>    The type of the screen's controller.
+     * @return The screen's controller, so the caller can give it data to display.
+     * @throws IOException If the screen had not been loaded yet and its FXML could not be loaded.
+     */
+    public static <C> C show(Node source, Screen screen) throws IOException {
+        return show((Stage) source.getScene().getWindow(), screen);
+    }
+
+    /**
+     * Shows a screen in a window.
+     * @param stage  The window to use.
+     * @param screen The screen to show.
+     * @param <C>    The type of the screen's controller.
+     * @return The screen's controller, so the caller can give it data to display.
+     * @throws IOException If the screen had not been loaded yet and its FXML could not be loaded.
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> C show(Stage stage, Screen screen) throws IOException {
+        Loaded loaded = screens.get(screen);
+        if (loaded == null) {
+            loaded = load(screen);
+        } else if (loaded.controller instanceof ResettableController) {
+            ((ResettableController) loaded.controller).resetState();
+        }
+        stage.setScene(loaded.scene);
+        stage.show();
+        return (C) loaded.controller;
+    }
+
+    /**
+     * Loads screens ahead of time so they can be shown without waiting.
+     * Each screen is loaded in its own event, after the events already queued, such as
+     * the first paint of the window. Screens that fail to load are loaded again when shown.
+     * @param toLoad The screens to load.
+     */
+    public static void preload(Screen... toLoad) {
+        for (Screen screen : toLoad) {
+            Platform.runLater(() -> {
+                if (!screens.containsKey(screen)) {
+                    try {
+                        load(screen);
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Could not preload " + screen.fxml, e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Parses a screen's FXML and keeps its scene and controller.
+     * @param screen The screen to load.
+     * @return The loaded screen.
+     * @throws IOException If the FXML could not be loaded.
+     */
+    private static Loaded load(Screen screen) throws IOException {
+        FXMLLoader loader = new FXMLLoader(ScreenManager.class.getResource(screen.fxml));
+        Parent root = loader.load();
+        Loaded loaded = new Loaded(new Scene(root, screen.width, screen.height), loader.getController());
+        screens.put(screen, loaded);
+        return loaded;
+    }
+
+    /**
+     * The Loaded class is a screen's scene together with its controller.
+     */
+    private static final class Loaded {
+        private final Scene scene;
+        private final Object controller;
+
+        Loaded(Scene scene, Object controller) {
+            this.scene = scene;
+            this.controller = controller;
+        }
+    }
+}
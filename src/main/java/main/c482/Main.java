@@ -1,12 +1,14 @@
 package main.c482;
 
+import controller.ScreenManager;
+import controller.ScreenManager.Screen;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.stage.Stage;
 import model.*;
+import persistence.InventoryStorage;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * @author jakobberentsen
@@ -19,49 +21,71 @@ import java.io.IOException;
  */
 public class Main extends Application {
 
+    private static InventoryStorage storage;
 
     /**
      * The start method is called when the application is launched.
-     * It loads the MainScreen.FXML file and sets up the main scene.
+     * It shows the main screen, then loads the other screens in the background so they open straight away.
      * @param stage The primary stage for the application.
      * @throws IOException If an error occurs during loading of the MainScreen.FXML file.
      */
     @Override
     public void start(Stage stage) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("/view/MainScreen.fxml"));
-        Scene scene = new Scene(fxmlLoader.load(), 888, 365);
+        FxListBridge.attachToFxThread();
         stage.setTitle("Hello!");
-        stage.setScene(scene);
-        stage.show();
+        ScreenManager.show(stage, Screen.MAIN);
+        ScreenManager.preload(Screen.ADD_PART, Screen.MODIFY_PART, Screen.ADD_PRODUCT, Screen.MODIFY_PRODUCT);
+    }
+
+    /**
+     * The stop method is called when the application exits.
+     * It writes a checkpoint so the next start loads from the snapshot, and closes the storage.
+     * @throws IOException If the snapshot or the mutation log could not be written.
+     */
+    @Override
+    public void stop() throws IOException {
+        if (storage != null) {
+            try {
+                storage.checkpoint();
+            } finally {
+                storage.close();
+            }
+        }
     }
 
 
     /**
      * The main method is the entry point of the application.
-     * It launches the JavaFX application.
+     * It loads the saved inventory, adds the sample data on first run and launches the JavaFX application.
      * @param args The command-line arguments passed to the application.
+     * @throws IOException If the saved inventory cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        storage = InventoryStorage.open(Inventory.dataDirectory());
+        if (Inventory.getAllParts().isEmpty() && Inventory.getAllProducts().isEmpty()) {
+            addSampleData();
+        }
+        launch();
+    }
+
+    /**
+     * Adds the sample parts and products.
      */
-    public static void main(String[] args) {
+    private static void addSampleData() {
         Part Sprocket = new InHouse(1, "belt", 10.00, 10, 3, 20, 1);
-        Inventory.addPart(Sprocket);
         Part Chain = new InHouse(2, "chain", 15.00, 10, 3, 10,7);
-        Inventory.addPart(Chain);
         Part Screw = new Outsourced(3, "screw", 2.00, 10, 3, 15, "Tim's Bike Shack");
-        Inventory.addPart(Screw);
+        Inventory.addParts(List.of(Sprocket, Chain, Screw));
 
         Product product1 = new Product(1, "Big Wheel", 200.00, 5, 1, 5);
-        Inventory.addProduct(product1);
         product1.addAssociatedPart(Sprocket);
         product1.addAssociatedPart(Chain);
         Product product2 = new Product(2, "Adult Bike", 200.00, 5, 1, 5);
-        Inventory.addProduct(product2);
         product2.addAssociatedPart(Sprocket);
         product2.addAssociatedPart(Chain);
         Product product3 = new Product(3, "Moto Bike", 200.00, 5, 1, 5);
-        Inventory.addProduct(product3);
         product3.addAssociatedPart(Sprocket);
         product3.addAssociatedPart(Chain);
-
-        launch();
+        Inventory.addProducts(List.of(product1, product2, product3));
     }
 }
\ No newline at end of file
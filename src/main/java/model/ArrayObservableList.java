@@ -0,0 +1,56 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The ArrayObservableList class is a BatchObservableList backed by an ArrayList.
+ * @param <E> The type of element in the list.
+ */
+public class ArrayObservableList<E> extends BatchObservableList<E> {
+
+    private final ArrayList<E> elements = new ArrayList<>();
+
+    @Override
+    public E get(int index) {
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    protected void doAdd(int index, E element) {
+        elements.add(index, element);
+    }
+
+    @Override
+    protected E doSet(int index, E element) {
+        return elements.set(index, element);
+    }
+
+    @Override
+    protected E doRemove(int index) {
+        return elements.remove(index);
+    }
+
+    @Override
+    protected List<E> doRemoveAll(BitSet positions) {
+        List<E> gone = new ArrayList<>(positions.cardinality());
+        int size = elements.size();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            E element = elements.get(i);
+            if (positions.get(i)) {
+                gone.add(element);
+            } else {
+                elements.set(kept++, element);
+            }
+        }
+        elements.subList(kept, size).clear();
+        return gone;
+    }
+}
@@ -0,0 +1,82 @@
+package model;
+
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The BatchObservableList class is an observable list that can group any number of
+ * modifications into a single change event.
+ * @param <E> The type of element in the list.
+ */
+public abstract class BatchObservableList<E> extends ModifiableObservableListBase<E> {
+
+    /**
+     * Runs a block of modifications and reports them to listeners as one change.
+     * Batches may be nested; listeners are notified when the outermost batch ends.
+     * @param modifications The code that modifies the list.
+     */
+    public void batch(Runnable modifications) {
+        beginChange();
+        try {
+            modifications.run();
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Removes and replaces elements in one pass over the list, reported as one change.
+     * Removing k elements one at a time would shift the rest of the list k times; this closes
+     * every gap at once.
+     * @param removed      The elements to remove.
+     * @param replacements The replacements, keyed by the element being replaced.
+     */
+    public void removeAndReplace(Set<?> removed, Map<?, ? extends E> replacements) {
+        batch(() -> {
+            BitSet positions = new BitSet();
+            for (int i = 0; i < size(); i++) {
+                E element = get(i);
+                if (removed.contains(element)) {
+                    positions.set(i);
+                    continue;
+                }
+                E replacement = replacements.get(element);
+                if (replacement != null) {
+                    nextSet(i, doSet(i, replacement));
+                }
+            }
+            if (positions.isEmpty()) {
+                return;
+            }
+            List<E> gone = doRemoveAll(positions);
+            int k = 0;
+            for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+                nextRemove(i - k, gone.get(k));
+                k++;
+            }
+            modCount++;
+        });
+    }
+
+    /**
+     * Removes the elements at the marked positions without reporting the change.
+     * By default each element is removed on its own, last first. Subclasses that can close
+     * every gap in one pass should override this.
+     * @param positions The positions to remove.
+     * @return The removed elements, in position order.
+     */
+    protected List<E> doRemoveAll(BitSet positions) {
+        List<E> gone = new ArrayList<>(positions.cardinality());
+        for (int i = positions.length() - 1; i >= 0; i = positions.previousSetBit(i - 1)) {
+            gone.add(doRemove(i));
+        }
+        Collections.reverse(gone);
+        return gone;
+    }
+}
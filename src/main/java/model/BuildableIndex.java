@@ -0,0 +1,294 @@
+package model;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The BuildableIndex class keeps, for every product in the inventory, the number of units that
+ * could be built from current part stock: the smallest, over the product's associated parts,
+ * of the part's spare stock divided by the number of times the product uses it. A part's spare
+ * stock is what a build could take from it, its stock less its minimum and the units already
+ * reserved, or zero if that is negative.
+ * A product with no associated parts, or one using a part that is not in the inventory, has none.
+ * A change to a part's stock or reservations recomputes just the products using the part, which
+ * costs one pass over each such product's parts, reading their current levels.
+ * Changes other than stock changes arrive under Inventory's write lock. Stock and reservation
+ * changes arrive holding only the read side of their part's stock stripe, possibly on several
+ * threads at once, so each product's quantity is recomputed under its own lock. Each recompute
+ * reads the parts as they are when it runs, so the last one after a change always sees it,
+ * whatever order the events arrive in. The map from part to products is shared between stripes,
+ * so it is a ConcurrentIntMap; each part's list of products is only changed under Inventory's
+ * write lock and the write side of that part's stripe.
+ */
+public class BuildableIndex implements InventoryListener {
+
+    private final ConcurrentIntMap<Entry> entries = new ConcurrentIntMap<>();
+    private final ConcurrentIntMap<List<Entry>> entriesByPartId = new ConcurrentIntMap<>();
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+    /**
+     * Retrieves the number of units of a product that could be built now.
+     * @param product The product.
+     * @return The buildable quantity, or 0 if the product is not in the inventory.
+     */
+    public int getBuildable(Product product) {
+        Entry entry = entryOf(product);
+        return entry != null ? entry.buildable : 0;
+    }
+
+    /**
+     * Retrieves a property holding the buildable quantity of a product, for binding to the UI.
+     * The property is created on first request and is updated on the JavaFX application thread.
+     * @param product The product.
+     * @return The property. For a product that is not in the inventory it holds 0 and never changes.
+     */
+    public ReadOnlyIntegerProperty buildableProperty(Product product) {
+        Entry entry = entryOf(product);
+        if (entry == null) {
+            return new ReadOnlyIntegerWrapper(0).getReadOnlyProperty();
+        }
+        synchronized (entry) {
+            if (entry.property == null) {
+                entry.property = new ReadOnlyIntegerWrapper(entry.buildable);
+            }
+            return entry.property.getReadOnlyProperty();
+        }
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        refresh(part.getId());
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        if (oldPart.getId() != newPart.getId()) {
+            refresh(oldPart.getId());
+        }
+        refresh(newPart.getId());
+    }
+
+    @Override
+    public void partDeleted(Part part) {
+        refresh(part.getId());
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        Entry entry = new Entry(product);
+        entries.put(product.getId(), entry);
+        for (Part part : product.getAllAssociatedParts()) {
+            use(entry, part.getId());
+        }
+        entry.recompute();
+    }
+
+    @Override
+    public void productUpdated(Product oldProduct, Product newProduct) {
+        productDeleted(oldProduct);
+        productAdded(newProduct);
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        Entry entry = entryOf(product);
+        if (entry == null) {
+            return;
+        }
+        entries.remove(product.getId(), entry);
+        for (int i = 0; i < entry.count; i++) {
+            List<Entry> users = entriesByPartId.get(entry.partIds[i]);
+            users.remove(entry);
+            if (users.isEmpty()) {
+                entriesByPartId.remove(entry.partIds[i], users);
+            }
+        }
+    }
+
+    @Override
+    public void associatedPartAdded(Product product, Part part) {
+        Entry entry = entryOf(product);
+        if (entry != null) {
+            use(entry, part.getId());
+            publishIfChanged(entry);
+        }
+    }
+
+    @Override
+    public void associatedPartRemoved(Product product, Part part) {
+        Entry entry = entryOf(product);
+        if (entry == null) {
+            return;
+        }
+        if (entry.removeUses(part.getId())) {
+            List<Entry> users = entriesByPartId.get(part.getId());
+            users.remove(entry);
+            if (users.isEmpty()) {
+                entriesByPartId.remove(part.getId(), users);
+            }
+        }
+        publishIfChanged(entry);
+    }
+
+    @Override
+    public void stockChanged(Part part, int oldStock, int newStock) {
+        refresh(part.getId());
+    }
+
+    @Override
+    public void reservationChanged(Part part, int oldReserved, int newReserved) {
+        refresh(part.getId());
+    }
+
+    /**
+     * Records one more use of a part by a product.
+     * @param entry  The product's entry.
+     * @param partId The id of the part.
+     */
+    private void use(Entry entry, int partId) {
+        if (entry.addUse(partId)) {
+            List<Entry> users = entriesByPartId.get(partId);
+            if (users == null) {
+                users = new ArrayList<>(4);
+                entriesByPartId.put(partId, users);
+            }
+            users.add(entry);
+        }
+    }
+
+    /**
+     * Recomputes every product that uses a part.
+     * @param partId The id of the part that changed.
+     */
+    private void refresh(int partId) {
+        List<Entry> users = entriesByPartId.get(partId);
+        if (users == null) {
+            return;
+        }
+        for (Entry entry : users) {
+            publishIfChanged(entry);
+        }
+    }
+
+    /**
+     * Finds the entry of a product, if that product is the one in the index under its id.
+     * @param product The product.
+     * @return The entry, or null if the product is not indexed.
+     */
+    private Entry entryOf(Product product) {
+        Entry entry = entries.get(product.getId());
+        return entry != null && entry.product == product ? entry : null;
+    }
+
+    /**
+     * Recomputes a product's quantity and, if it changed and a property is bound to it,
+     * queues the property to be updated.
+     * @param entry The product's entry.
+     */
+    private void publishIfChanged(Entry entry) {
+        if (entry.recompute() && entry.property != null) {
+            pending.add(entry);
+            if (publishScheduled.compareAndSet(false, true)) {
+                FxListBridge.runOnFxThread(this::publish);
+            }
+        }
+    }
+
+    /**
+     * Copies every queued quantity into its property.
+     */
+    private void publish() {
+        publishScheduled.set(false);
+        for (Entry entry = pending.poll(); entry != null; entry = pending.poll()) {
+            entry.property.set(entry.buildable);
+        }
+    }
+
+    /**
+     * The Entry class holds one product's parts and how many of each it uses.
+     */
+    private static final class Entry {
+        private final Product product;
+        private int[] partIds = new int[4];
+        private int[] uses = new int[4];
+        private int count;
+        private volatile int buildable;
+        private volatile ReadOnlyIntegerWrapper property;
+
+        Entry(Product product) {
+            this.product = product;
+        }
+
+        /**
+         * Counts one more use of a part.
+         * @param partId The id of the part.
+         * @return True if the product did not use the part before, false otherwise.
+         */
+        synchronized boolean addUse(int partId) {
+            int i = indexOf(partId);
+            if (i >= 0) {
+                uses[i]++;
+                return false;
+            }
+            if (count == partIds.length) {
+                partIds = Arrays.copyOf(partIds, count * 2);
+                uses = Arrays.copyOf(uses, count * 2);
+            }
+            partIds[count] = partId;
+            uses[count] = 1;
+            count++;
+            return true;
+        }
+
+        /**
+         * Stops counting a part. Product removes every occurrence of a part at once,
+         * so all of its uses go together.
+         * @param partId The id of the part.
+         * @return True if the product used the part, false otherwise.
+         */
+        synchronized boolean removeUses(int partId) {
+            int i = indexOf(partId);
+            if (i < 0) {
+                return false;
+            }
+            count--;
+            partIds[i] = partIds[count];
+            uses[i] = uses[count];
+            return true;
+        }
+
+        /**
+         * Works out the buildable quantity from the parts' current spare stock.
+         * @return True if the quantity changed, false otherwise.
+         */
+        synchronized boolean recompute() {
+            int quantity = count == 0 ? 0 : Integer.MAX_VALUE;
+            for (int i = 0; i < count && quantity > 0; i++) {
+                Part part = Inventory.lookupPart(partIds[i]);
+                int spare = part != null ? Math.max(0, part.getAvailable() - part.getMin()) : 0;
+                quantity = Math.min(quantity, spare / uses[i]);
+            }
+            if (quantity == buildable) {
+                return false;
+            }
+            buildable = quantity;
+            return true;
+        }
+
+        private int indexOf(int partId) {
+            for (int i = 0; i < count; i++) {
+                if (partIds[i] == partId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
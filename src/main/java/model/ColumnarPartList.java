@@ -0,0 +1,76 @@
+package model;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The ColumnarPartList class is an observable list of parts backed by a PartColumnStore.
+ * It can be bound to a TableView like any other observable list, but the parts it returns
+ * are flyweight views over the store's columns. Changing the list only changes which stored
+ * records it shows and in what order; the records themselves are changed by Inventory.
+ */
+public class ColumnarPartList extends BatchObservableList<Part> {
+
+    private final PartColumnStore store;
+
+    /**
+     * Creates a list over a column store.
+     * @param store The store holding the parts.
+     */
+    public ColumnarPartList(PartColumnStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Retrieves the store behind the list.
+     * @return The column store.
+     */
+    public PartColumnStore getStore() {
+        return store;
+    }
+
+    @Override
+    public Part get(int index) {
+        return store.get(index);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return store.positionOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return store.positionOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return store.positionOf(o) >= 0;
+    }
+
+    @Override
+    protected void doAdd(int index, Part element) {
+        store.insert(index, element);
+    }
+
+    @Override
+    protected Part doSet(int index, Part element) {
+        return store.replace(index, element);
+    }
+
+    @Override
+    protected Part doRemove(int index) {
+        return store.remove(index);
+    }
+
+    @Override
+    protected List<Part> doRemoveAll(BitSet positions) {
+        return store.removeAll(positions);
+    }
+}
@@ -0,0 +1,134 @@
+package model;
+
+/**
+ * The ConcurrentIntMap class is a thread-safe map keyed by primitive int values.
+ * The keys are split across independently locked IntMap stripes, so threads working
+ * on different ids rarely wait for each other.
+ * @param <V> The type of value stored in the map.
+ */
+public class ConcurrentIntMap<V> {
+
+    private static final int STRIPES = 32;
+
+    private final IntMap<V>[] stripes;
+
+    /**
+     * Creates an empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentIntMap() {
+        stripes = new IntMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new IntMap<>();
+        }
+    }
+
+    /**
+     * Retrieves the value mapped to a key.
+     * @param key The key to look up.
+     * @return The mapped value, or null if the key is not present.
+     */
+    public V get(int key) {
+        IntMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping.
+     * @param key   The key to map.
+     * @param value The value to store. Must not be null.
+     * @return The previous value, or null if the key was not present.
+     */
+    public V put(int key, V value) {
+        IntMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.put(key, value);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key only if it currently maps to the given value.
+     * @param key   The key to remove.
+     * @param value The value the key is expected to map to.
+     * @return True if the mapping was removed, false otherwise.
+     */
+    public boolean remove(int key, V value) {
+        IntMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key, value);
+        }
+    }
+
+    /**
+     * Replaces the value of a key only if it currently maps to the expected value.
+     * @param key      The key to update.
+     * @param expected The value the key is expected to map to.
+     * @param value    The new value. Must not be null.
+     * @return True if the value was replaced, false otherwise.
+     */
+    public boolean replace(int key, V expected, V value) {
+        IntMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            if (stripe.get(key) != expected) {
+                return false;
+            }
+            stripe.put(key, value);
+            return true;
+        }
+    }
+
+    /**
+     * Retrieves the number of mappings in the map.
+     * @return The number of mappings.
+     */
+    public int size() {
+        int size = 0;
+        for (IntMap<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Passes every key and value to a visitor, one stripe at a time.
+     * Each stripe's mappings are copied under its lock and visited after the lock is released,
+     * so the visitor may take other locks, or change this map, without blocking writers.
+     * Changes made during the walk may or may not be seen.
+     * @param visitor The visitor to call for each mapping.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(IntMap.Visitor<V> visitor) {
+        int[] keys = new int[16];
+        Object[] values = new Object[16];
+        for (IntMap<V> stripe : stripes) {
+            int count;
+            synchronized (stripe) {
+                count = stripe.size();
+                if (count > keys.length) {
+                    keys = new int[Math.max(count, keys.length * 2)];
+                    values = new Object[keys.length];
+                }
+                int[] stripeKeys = keys;
+                Object[] stripeValues = values;
+                int[] next = new int[1];
+                stripe.forEach((key, value) -> {
+                    stripeKeys[next[0]] = key;
+                    stripeValues[next[0]++] = value;
+                });
+            }
+            for (int i = 0; i < count; i++) {
+                visitor.visit(keys[i], (V) values[i]);
+                values[i] = null;
+            }
+        }
+    }
+
+    private IntMap<V> stripeFor(int key) {
+        int h = key * 0x9E3779B9;
+        return stripes[(h >>> 27) & (STRIPES - 1)];
+    }
+}
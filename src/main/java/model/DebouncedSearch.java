@@ -0,0 +1,125 @@
+package model;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The DebouncedSearch class runs a search as the user types without blocking the JavaFX
+ * application thread.
+ * Each call to search waits for a short pause in typing before the query runs, so a burst of
+ * keystrokes runs one query. Queries run on one shared daemon thread, and the results are
+ * handed to the JavaFX application thread. Starting a new search cancels the one before it:
+ * a query that has not started yet never runs, a running query is interrupted, and results
+ * that arrive after a newer search was started are dropped, so the results shown always
+ * belong to the latest text.
+ * @param <T> The type of item found.
+ */
+public class DebouncedSearch<T> {
+
+    /**
+     * The pause in typing that starts a search.
+     */
+    public static final Duration DEFAULT_DELAY = Duration.ofMillis(150);
+
+    private static final ScheduledThreadPoolExecutor searcher = createSearcher();
+
+    private final Duration delay;
+    private final Function<String, List<T>> query;
+    private final BiConsumer<String, List<T>> onResults;
+    private long generation;
+    private Future<?> pending;
+
+    /**
+     * Creates a search that waits for the default pause in typing.
+     * @param query     The query to run. It is called on the search thread and must be safe to call from it.
+     * @param onResults Called on the JavaFX application thread with the text and the items found.
+     */
+    public DebouncedSearch(Function<String, List<T>> query, BiConsumer<String, List<T>> onResults) {
+        this(DEFAULT_DELAY, query, onResults);
+    }
+
+    /**
+     * Creates a search.
+     * @param delay     The pause in typing that starts a search.
+     * @param query     The query to run. It is called on the search thread and must be safe to call from it.
+     * @param onResults Called on the JavaFX application thread with the text and the items found.
+     */
+    public DebouncedSearch(Duration delay, Function<String, List<T>> query, BiConsumer<String, List<T>> onResults) {
+        this.delay = delay;
+        this.query = query;
+        this.onResults = onResults;
+    }
+
+    /**
+     * Searches for text once typing pauses, cancelling the previous search.
+     * @param text The text to search for.
+     */
+    public void search(String text) {
+        schedule(text, delay);
+    }
+
+    /**
+     * Searches for text straight away, cancelling the previous search. Used when the user asks
+     * for the search, such as by pressing Enter.
+     * @param text The text to search for.
+     */
+    public void searchNow(String text) {
+        schedule(text, Duration.ZERO);
+    }
+
+    /**
+     * Cancels the current search so its results are never delivered.
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private synchronized void schedule(String text, Duration wait) {
+        cancel();
+        long current = generation;
+        pending = searcher.schedule(() -> run(text, current), wait.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs a query and delivers its results if no newer search has started.
+     * @param text       The text to search for.
+     * @param generation The search count when the query was scheduled.
+     */
+    private void run(String text, long generation) {
+        if (!isCurrent(generation)) {
+            return;
+        }
+        List<T> results = query.apply(text);
+        if (Thread.interrupted() || !isCurrent(generation)) {
+            return;
+        }
+        FxListBridge.runOnFxThread(() -> {
+            if (isCurrent(generation)) {
+                onResults.accept(text, results);
+            }
+        });
+    }
+
+    private synchronized boolean isCurrent(long generation) {
+        return this.generation == generation;
+    }
+
+    private static ScheduledThreadPoolExecutor createSearcher() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "inventory-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,295 @@
+package model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.TransformationList;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The FilteredListView class is a live view of the elements of an observable list that match
+ * a predicate, kept as the sorted source positions of the matches rather than a copy of them.
+ * When the source changes only the added, removed and replaced elements are tested, so an
+ * edited element enters or leaves the view as soon as it is replaced in the source.
+ * A new predicate that only narrows the old one, such as a search term that extends the previous
+ * term, is applied with narrow, which tests only the elements already in the view.
+ * Any other predicate is applied with setPredicate, which tests every element once.
+ * Each change is reported as the rows that actually entered or left the view.
+ * Like the source list, the view belongs to the JavaFX application thread.
+ * @param <E> The type of element in the list.
+ */
+public class FilteredListView<E> extends TransformationList<E, E> {
+
+    private Predicate<? super E> predicate;
+    private int[] matches = new int[16];
+    private int size;
+
+    /**
+     * Creates a view that shows every element of its source until a predicate is set.
+     * @param source The list to filter.
+     */
+    public FilteredListView(ObservableList<E> source) {
+        super(source);
+        matchAll();
+    }
+
+    /**
+     * Retrieves the predicate elements must match to be shown.
+     * @return The predicate, or null if every element is shown.
+     */
+    public Predicate<? super E> getPredicate() {
+        return predicate;
+    }
+
+    /**
+     * Shows the elements that match a predicate, testing every element of the source.
+     * @param predicate The predicate to match, or null to show every element.
+     */
+    public void setPredicate(Predicate<? super E> predicate) {
+        int[] oldMatches = matches;
+        int oldSize = size;
+        this.predicate = predicate;
+        if (predicate == null) {
+            matchAll();
+        } else {
+            int[] newMatches = new int[Math.max(16, Math.min(getSource().size(), oldSize * 2))];
+            int newSize = 0;
+            for (int i = 0; i < getSource().size(); i++) {
+                if (predicate.test(getSource().get(i))) {
+                    if (newSize == newMatches.length) {
+                        newMatches = Arrays.copyOf(newMatches, newSize * 2);
+                    }
+                    newMatches[newSize++] = i;
+                }
+            }
+            matches = newMatches;
+            size = newSize;
+        }
+        fireDifference(oldMatches, oldSize);
+    }
+
+    /**
+     * Shows the elements that match a predicate, testing only the elements already shown.
+     * The caller must know that no element outside the view can match it, because every
+     * element that matches it also matches the current predicate.
+     * @param narrower The predicate to match.
+     */
+    public void narrow(Predicate<? super E> narrower) {
+        predicate = narrower;
+        beginChange();
+        try {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                E element = getSource().get(matches[i]);
+                if (narrower.test(element)) {
+                    matches[kept++] = matches[i];
+                } else {
+                    nextRemove(kept, element);
+                }
+            }
+            size = kept;
+        } finally {
+            endChange();
+        }
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range for size " + size);
+        }
+        return getSource().get(matches[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getSourceIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range for size " + size);
+        }
+        return matches[index];
+    }
+
+    @Override
+    public int getViewIndex(int index) {
+        int position = Arrays.binarySearch(matches, 0, size, index);
+        return position >= 0 ? position : -1;
+    }
+
+    @Override
+    protected void sourceChanged(ListChangeListener.Change<? extends E> c) {
+        beginChange();
+        try {
+            while (c.next()) {
+                if (c.wasPermutated()) {
+                    permute(c);
+                } else if (c.wasUpdated()) {
+                    update(c);
+                } else {
+                    replace(c);
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Moves the matches to their new source positions after a source permutation.
+     * @param c The permutation change.
+     */
+    private void permute(ListChangeListener.Change<? extends E> c) {
+        int from = Arrays.binarySearch(matches, 0, size, c.getFrom());
+        from = from >= 0 ? from : -from - 1;
+        int to = Arrays.binarySearch(matches, 0, size, c.getTo());
+        to = to >= 0 ? to : -to - 1;
+        if (from == to) {
+            return;
+        }
+        long[] moved = new long[to - from];
+        for (int i = from; i < to; i++) {
+            moved[i - from] = (long) c.getPermutation(matches[i]) << 32 | (i - from);
+        }
+        Arrays.sort(moved);
+        int[] permutation = new int[to - from];
+        for (int i = 0; i < moved.length; i++) {
+            matches[from + i] = (int) (moved[i] >>> 32);
+            permutation[(int) moved[i]] = from + i;
+        }
+        nextPermutation(from, to, permutation);
+    }
+
+    /**
+     * Tests source elements that changed in place and adds, removes or updates their rows.
+     * @param c The update change.
+     */
+    private void update(ListChangeListener.Change<? extends E> c) {
+        for (int sourceIndex = c.getFrom(); sourceIndex < c.getTo(); sourceIndex++) {
+            E element = getSource().get(sourceIndex);
+            int position = Arrays.binarySearch(matches, 0, size, sourceIndex);
+            boolean matched = position >= 0;
+            boolean matching = predicate == null || predicate.test(element);
+            if (matched && matching) {
+                nextUpdate(position);
+            } else if (matched) {
+                removeAt(position);
+                nextRemove(position, element);
+            } else if (matching) {
+                position = -position - 1;
+                insertAt(position, sourceIndex);
+                nextAdd(position, position + 1);
+            }
+        }
+    }
+
+    /**
+     * Drops the rows of removed source elements, shifts the later matches, and tests the added ones.
+     * @param c The change that removed and added source elements.
+     */
+    private void replace(ListChangeListener.Change<? extends E> c) {
+        int from = c.getFrom();
+        int removedSize = c.getRemovedSize();
+        int start = lowerBound(from);
+        int end = lowerBound(from + removedSize);
+        if (end > start) {
+            List<? extends E> removed = c.getRemoved();
+            E[] leaving = newArray(end - start);
+            for (int i = start; i < end; i++) {
+                leaving[i - start] = removed.get(matches[i] - from);
+            }
+            System.arraycopy(matches, end, matches, start, size - end);
+            size -= end - start;
+            nextRemove(start, Arrays.asList(leaving));
+        }
+        int shift = c.getAddedSize() - removedSize;
+        for (int i = start; i < size; i++) {
+            matches[i] += shift;
+        }
+        if (c.wasAdded()) {
+            int[] entering = new int[c.getAddedSize()];
+            int count = 0;
+            for (int sourceIndex = from; sourceIndex < c.getTo(); sourceIndex++) {
+                if (predicate == null || predicate.test(getSource().get(sourceIndex))) {
+                    entering[count++] = sourceIndex;
+                }
+            }
+            if (count > 0) {
+                if (size + count > matches.length) {
+                    matches = Arrays.copyOf(matches, Math.max(size + count, matches.length * 2));
+                }
+                System.arraycopy(matches, start, matches, start + count, size - start);
+                System.arraycopy(entering, 0, matches, start, count);
+                size += count;
+                nextAdd(start, start + count);
+            }
+        }
+    }
+
+    /**
+     * Reports the rows that differ between the old matches and the current ones.
+     * Both arrays are sorted source positions of the same unchanged source.
+     * @param oldMatches The matches before the predicate changed.
+     * @param oldSize    The number of old matches.
+     */
+    private void fireDifference(int[] oldMatches, int oldSize) {
+        beginChange();
+        try {
+            int oldIndex = 0;
+            int newIndex = 0;
+            while (oldIndex < oldSize || newIndex < size) {
+                int oldSource = oldIndex < oldSize ? oldMatches[oldIndex] : Integer.MAX_VALUE;
+                int newSource = newIndex < size ? matches[newIndex] : Integer.MAX_VALUE;
+                if (oldSource == newSource) {
+                    oldIndex++;
+                    newIndex++;
+                } else if (oldSource < newSource) {
+                    nextRemove(newIndex, getSource().get(oldSource));
+                    oldIndex++;
+                } else {
+                    nextAdd(newIndex, newIndex + 1);
+                    newIndex++;
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    private void matchAll() {
+        size = getSource().size();
+        matches = new int[Math.max(16, size)];
+        for (int i = 0; i < size; i++) {
+            matches[i] = i;
+        }
+    }
+
+    private int lowerBound(int sourceIndex) {
+        int position = Arrays.binarySearch(matches, 0, size, sourceIndex);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void insertAt(int position, int sourceIndex) {
+        if (size == matches.length) {
+            matches = Arrays.copyOf(matches, size * 2);
+        }
+        System.arraycopy(matches, position, matches, position + 1, size - position);
+        matches[position] = sourceIndex;
+        size++;
+    }
+
+    private void removeAt(int position) {
+        System.arraycopy(matches, position + 1, matches, position, size - position - 1);
+        size--;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E[] newArray(int length) {
+        return (E[]) new Object[length];
+    }
+}
@@ -0,0 +1,266 @@
+package model;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The FxListBridge class carries changes from any thread to an observable list that
+ * belongs to the JavaFX application thread.
+ * Changes from the FX thread are applied immediately. Changes from other threads are queued,
+ * and a single flush is scheduled with Platform.runLater. Everything queued by the time the
+ * flush runs is applied in one pass and reported to listeners as one change event.
+ * Until attachToFxThread is called, as in headless use or while seed data is loaded before
+ * launch, changes are applied on the calling thread instead.
+ * @param <E> The type of element in the list.
+ */
+public class FxListBridge<E> {
+
+    private static volatile Thread fxThread;
+
+    private final BatchObservableList<E> list;
+    private final ConcurrentLinkedQueue<Change<E>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * Creates a bridge for a list.
+     * @param list The list the changes are applied to.
+     */
+    public FxListBridge(BatchObservableList<E> list) {
+        this.list = list;
+    }
+
+    /**
+     * Appends an element to the list.
+     * @param element The element to add.
+     */
+    public void add(E element) {
+        submit(new Change<>(null, element));
+    }
+
+    /**
+     * Replaces an element of the list with another.
+     * @param oldElement The element to replace.
+     * @param newElement The element to put in its place.
+     */
+    public void replace(E oldElement, E newElement) {
+        replace(-1, oldElement, newElement);
+    }
+
+    /**
+     * Replaces an element of the list with another, starting from where the caller last saw it.
+     * If the element is no longer at that index, as when other changes were applied first,
+     * it is searched for instead.
+     * @param index      The index the caller found the element at, or -1 if it is not known.
+     * @param oldElement The element to replace.
+     * @param newElement The element to put in its place.
+     */
+    public void replace(int index, E oldElement, E newElement) {
+        submit(new Change<>(oldElement, newElement, index));
+    }
+
+    /**
+     * Removes an element from the list.
+     * @param element The element to remove.
+     */
+    public void remove(E element) {
+        submit(new Change<>(element, null));
+    }
+
+    /**
+     * Appends a batch of elements to the list as one change.
+     * @param elements The elements to add.
+     */
+    public void addAll(Collection<? extends E> elements) {
+        List<Change<E>> changes = new ArrayList<>(elements.size());
+        for (E element : elements) {
+            changes.add(new Change<>(null, element));
+        }
+        submit(changes);
+    }
+
+    /**
+     * Replaces a batch of elements as one change.
+     * @param replacements The replacements, keyed by the element being replaced.
+     */
+    public void replaceAll(Map<? extends E, ? extends E> replacements) {
+        List<Change<E>> changes = new ArrayList<>(replacements.size());
+        for (Map.Entry<? extends E, ? extends E> replacement : replacements.entrySet()) {
+            changes.add(new Change<>(replacement.getKey(), replacement.getValue()));
+        }
+        submit(changes);
+    }
+
+    /**
+     * Removes a batch of elements as one change.
+     * @param elements The elements to remove.
+     */
+    public void removeAll(Collection<? extends E> elements) {
+        List<Change<E>> changes = new ArrayList<>(elements.size());
+        for (E element : elements) {
+            changes.add(new Change<>(element, null));
+        }
+        submit(changes);
+    }
+
+    /**
+     * Routes every bridge's changes through the JavaFX application thread from now on.
+     * Must be called on that thread once the toolkit is running.
+     */
+    public static void attachToFxThread() {
+        if (!Platform.isFxApplicationThread()) {
+            throw new IllegalStateException("attachToFxThread must be called on the JavaFX application thread.");
+        }
+        fxThread = Thread.currentThread();
+    }
+
+    /**
+     * Runs an update on the JavaFX application thread once attachToFxThread has been called,
+     * or right away on the calling thread before then or if it is already that thread.
+     * @param update The update to run.
+     */
+    static void runOnFxThread(Runnable update) {
+        Thread owner = fxThread;
+        if (owner == null || owner == Thread.currentThread()) {
+            update.run();
+        } else {
+            Platform.runLater(update);
+        }
+    }
+
+    /**
+     * Applies every queued change now.
+     */
+    public void flush() {
+        flushScheduled.set(false);
+        List<Change<E>> changes = new ArrayList<>();
+        for (Change<E> change = pending.poll(); change != null; change = pending.poll()) {
+            changes.add(change);
+        }
+        if (!changes.isEmpty()) {
+            apply(changes);
+        }
+    }
+
+    private void submit(Change<E> change) {
+        submit(List.of(change));
+    }
+
+    private void submit(List<Change<E>> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Thread owner = fxThread;
+        if (owner == null) {
+            synchronized (this) {
+                flush();
+                apply(changes);
+            }
+            return;
+        }
+        if (owner == Thread.currentThread()) {
+            flush();
+            apply(changes);
+            return;
+        }
+        pending.addAll(changes);
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    /**
+     * Reduces a run of changes to their net effect and applies it in one pass over the list,
+     * so removing k elements costs one pass rather than k shifts of the list.
+     * @param changes The changes in the order they were made.
+     */
+    private void apply(List<Change<E>> changes) {
+        Set<E> added = new LinkedHashSet<>();
+        Set<E> removed = new HashSet<>();
+        Map<E, E> replaced = new HashMap<>();
+        Map<E, E> originals = new HashMap<>();
+        for (Change<E> change : changes) {
+            E from = change.oldElement;
+            E to = change.newElement;
+            if (from == null) {
+                added.add(to);
+                continue;
+            }
+            if (added.remove(from)) {
+                if (to != null) {
+                    added.add(to);
+                }
+                continue;
+            }
+            E original = originals.remove(from);
+            if (original == null) {
+                original = from;
+            }
+            if (to == null) {
+                replaced.remove(original);
+                removed.add(original);
+            } else {
+                replaced.put(original, to);
+                originals.put(to, original);
+            }
+        }
+        if (changes.size() == 1 && added.isEmpty()) {
+            applySingle(changes.get(0));
+            return;
+        }
+        list.batch(() -> {
+            if (!removed.isEmpty() || !replaced.isEmpty()) {
+                list.removeAndReplace(removed, replaced);
+            }
+            list.addAll(added);
+        });
+    }
+
+    /**
+     * Applies one removal or replacement, using the caller's index if the element is still there.
+     * @param change The change.
+     */
+    private void applySingle(Change<E> change) {
+        int index = change.index;
+        if (index < 0 || index >= list.size() || !list.get(index).equals(change.oldElement)) {
+            index = list.indexOf(change.oldElement);
+        }
+        if (index < 0) {
+            return;
+        }
+        if (change.newElement == null) {
+            list.remove(index);
+        } else {
+            list.set(index, change.newElement);
+        }
+    }
+
+    /**
+     * A queued change. An add has no old element and a removal has no new element.
+     * @param <E> The type of element in the list.
+     */
+    private static final class Change<E> {
+        private final E oldElement;
+        private final E newElement;
+        private final int index;
+
+        Change(E oldElement, E newElement) {
+            this(oldElement, newElement, -1);
+        }
+
+        Change(E oldElement, E newElement, int index) {
+            this.oldElement = oldElement;
+            this.newElement = newElement;
+            this.index = index;
+        }
+    }
+}
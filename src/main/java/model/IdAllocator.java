@@ -0,0 +1,126 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The IdAllocator class hands out unique, increasing ids.
+ * Ids come from an atomic counter, so callers never block each other. The counter runs
+ * inside a leased block whose upper bound is written to disk before any id from it is used.
+ * After a restart the allocator continues from the saved bound, so an id is never reused
+ * even if the application stopped part-way through a block.
+ */
+public class IdAllocator {
+
+    private final AtomicInteger next;
+    private final Path highWaterFile;
+    private final int blockSize;
+    private volatile int leaseLimit;
+
+    /**
+     * Creates an allocator that continues from the high-water mark saved in a file.
+     * @param highWaterFile The file holding the high-water mark, or null to keep it in memory only.
+     * @param blockSize     The number of ids leased each time the saved mark is raised.
+     */
+    public IdAllocator(Path highWaterFile, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1.");
+        }
+        this.highWaterFile = highWaterFile;
+        this.blockSize = blockSize;
+        int saved = readHighWater();
+        this.leaseLimit = saved;
+        this.next = new AtomicInteger(Math.max(1, saved));
+    }
+
+    /**
+     * Allocates the next id.
+     * @return An id that has not been handed out before.
+     */
+    public int nextId() {
+        int id = next.getAndIncrement();
+        if (id >= leaseLimit) {
+            extendLease(id + 1);
+        }
+        return id;
+    }
+
+    /**
+     * Allocates a contiguous range of ids in one step, for bulk importers.
+     * @param count The number of ids needed.
+     * @return The first id of the range. The range covers first to first + count - 1.
+     */
+    public int nextBlock(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be at least 1.");
+        }
+        int first = next.getAndAdd(count);
+        if (first + count > leaseLimit) {
+            extendLease(first + count);
+        }
+        return first;
+    }
+
+    /**
+     * Records that an id is already in use, so the allocator never hands it out.
+     * Called for records whose id was assigned elsewhere, such as seed data.
+     * @param id The id in use.
+     */
+    public void observe(int id) {
+        if (id < next.get()) {
+            return;
+        }
+        next.accumulateAndGet(id + 1, Math::max);
+        if (id >= leaseLimit) {
+            extendLease(id + 1);
+        }
+    }
+
+    /**
+     * Raises the saved high-water mark so every id below the given bound is covered.
+     * @param needed The exclusive bound that must be covered.
+     */
+    private synchronized void extendLease(int needed) {
+        if (needed <= leaseLimit) {
+            return;
+        }
+        int newLimit = needed + blockSize;
+        writeHighWater(newLimit);
+        leaseLimit = newLimit;
+    }
+
+    private int readHighWater() {
+        if (highWaterFile == null || !Files.exists(highWaterFile)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(Files.readString(highWaterFile, StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read id high-water mark " + highWaterFile, e);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Corrupt id high-water mark in " + highWaterFile, e);
+        }
+    }
+
+    private void writeHighWater(int limit) {
+        if (highWaterFile == null) {
+            return;
+        }
+        try {
+            Path parent = highWaterFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, highWaterFile.getFileName().toString(), ".tmp");
+            Files.writeString(temp, Integer.toString(limit), StandardCharsets.UTF_8,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(temp, highWaterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save id high-water mark " + highWaterFile, e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The IntIntMap class is a hash map from primitive int keys to primitive int values.
+ * It works like IntMap but stores the values inline, so no value objects are allocated.
+ */
+public class IntIntMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntIntMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Retrieves the value mapped to a key.
+     * @param key     The key to look up.
+     * @param missing The value to return if the key is not present.
+     * @return The mapped value, or missing if the key is not present.
+     */
+    public int get(int key, int missing) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping.
+     * @param key   The key to map.
+     * @param value The value to store.
+     */
+    public void put(int key, int value) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes the mapping for a key only if it currently maps to the given value.
+     * @param key   The key to remove.
+     * @param value The value the key is expected to map to.
+     * @return True if the mapping was removed, false otherwise.
+     */
+    public boolean remove(int key, int value) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                if (values[slot] != value) {
+                    return false;
+                }
+                deleteSlot(slot);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the number of mappings in the map.
+     * @return The number of mappings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every mapping from the map.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Empties a slot and shifts later entries of the same probe run back so no tombstones are needed.
+     * @param slot The slot to empty.
+     */
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        resizeAt = capacity * 3 / 4;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
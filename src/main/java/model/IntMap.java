@@ -0,0 +1,233 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The IntMap class is a hash map keyed by primitive int values.
+ * It uses open addressing with linear probing so lookups never box the key.
+ * @param <V> The type of value stored in the map.
+ */
+public class IntMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map sized to hold the expected number of entries without resizing.
+     * @param expectedSize The number of entries the map should hold before growing.
+     */
+    public IntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Retrieves the value mapped to a key.
+     * @param key The key to look up.
+     * @return The mapped value, or null if the key is not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a key is present.
+     * @param key The key to check.
+     * @return True if the key is mapped to a value, false otherwise.
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping.
+     * @param key   The key to map.
+     * @param value The value to store. Must not be null.
+     * @return The previous value, or null if the key was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntMap does not store null values.");
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key.
+     * @param key The key to remove.
+     * @return The removed value, or null if the key was not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                deleteSlot(slot);
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key only if it currently maps to the given value.
+     * @param key   The key to remove.
+     * @param value The value the key is expected to map to.
+     * @return True if the mapping was removed, false otherwise.
+     */
+    public boolean remove(int key, V value) {
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                if (values[slot] != value) {
+                    return false;
+                }
+                deleteSlot(slot);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the number of mappings in the map.
+     * @return The number of mappings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     * @return True if the map has no mappings, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every mapping from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Passes every key and value in the map to a visitor.
+     * @param visitor The visitor to call for each mapping.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<V> visitor) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                visitor.visit(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Receives the mappings of an IntMap.
+     * @param <V> The type of value stored in the map.
+     */
+    public interface Visitor<V> {
+        /**
+         * Called once for each mapping.
+         * @param key   The key of the mapping.
+         * @param value The value of the mapping.
+         */
+        void visit(int key, V value);
+    }
+
+    /**
+     * Empties a slot and shifts later entries of the same probe run back so no tombstones are needed.
+     * @param slot The slot to empty.
+     */
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        resizeAt = capacity * 3 / 4;
+    }
+
+    /**
+     * Spreads sequential ids across the table so they do not cluster into one probe run.
+     * @param key The key to hash.
+     * @return The mixed hash.
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,125 +1,858 @@
 package model;
 
+import javafx.beans.property.ReadOnlyIntegerProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
 /**
  * The Inventory class represents the inventory system of the application.
  * It manages the parts and products in the inventory.
+ * Setting the inventory.partStorage system property to "columnar" keeps parts in a
+ * PartColumnStore instead of one object per part. In that mode part lookups are answered
+ * by the store, and name searches scan its dictionary-encoded name column.
+ * All methods may be called from any thread. The id and name indexes are updated by the
+ * calling thread, so lookups see a change as soon as the call returns. The observable lists
+ * returned by getAllParts and getAllProducts belong to the JavaFX application thread; changes
+ * made on other threads reach them through an FxListBridge at the next pulse. Each change is
+ * handed to the bridge before the index lock is released, so the lists apply changes in the
+ * same order as the indexes, even when several threads change the same item at once.
+ * In columnar mode the store's records are written under the index lock like the id index,
+ * and the parts list only orders views of them, so lookups do not wait for the pulse either.
+ * The name indexes are built the first time a name search needs them rather than as items
+ * are added, so loading a large inventory at startup only pays for the id indexes.
+ * Stock operations do not take the index lock. Part ids are split into stripes, each with its
+ * own lock; a stock operation holds the read side of its part's stripe, and mutators take the
+ * write side of the stripes of the parts whose stock they read, always after the index lock and
+ * in stripe order. Picking therefore only waits for changes to parts in the same stripe.
  */
 public class Inventory {
 
-    private static ObservableList<Part> allParts = FXCollections.observableArrayList();
-    private static ObservableList<Product> allProducts = FXCollections.observableArrayList();
+    private static final int ID_BLOCK_SIZE = 10_000;
+
+    private static final PartColumnStore partColumns =
+            "columnar".equals(System.getProperty("inventory.partStorage")) ? new PartColumnStore() : null;
+
+    private static final BatchObservableList<Part> allParts =
+            partColumns != null ? new ColumnarPartList(partColumns) : new ArrayObservableList<>();
+    private static final BatchObservableList<Product> allProducts = new ArrayObservableList<>();
+    private static final SortedListView<Part> sortedParts = sortedView(allParts, Part::getId, Part::getName, Part::getPrice);
+    private static final SortedListView<Product> sortedProducts =
+            sortedView(allProducts, Product::getId, Product::getName, Product::getPrice);
+    private static final FxListBridge<Part> partListBridge = new FxListBridge<>(allParts);
+    private static final FxListBridge<Product> productListBridge = new FxListBridge<>(allProducts);
+    private static final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private static final int STOCK_STRIPES = 64;
+    private static final long ALL_STRIPES = -1L;
+    private static final ReentrantReadWriteLock[] stockLocks = newStockLocks();
+    private static final ConcurrentIntMap<Part> partsById = new ConcurrentIntMap<>();
+    private static final ConcurrentIntMap<Product> productsById = new ConcurrentIntMap<>();
+    private static final PrefixIndex<Part> partsByName = new PrefixIndex<>(Part::getName);
+    private static final PrefixIndex<Product> productsByName = new PrefixIndex<>(Product::getName);
+    private static final TrigramIndex<Part> partNameGrams = new TrigramIndex<>(Part::getName);
+    private static final TrigramIndex<Product> productNameGrams = new TrigramIndex<>(Product::getName);
+    private static volatile boolean partNamesIndexed;
+    private static volatile boolean productNamesIndexed;
+    private static final WhereUsedIndex whereUsed = new WhereUsedIndex();
+    private static final BuildableIndex buildable = new BuildableIndex();
+    private static final ValuationIndex valuation = new ValuationIndex();
+    private static final ReorderMonitor reorders = new ReorderMonitor();
+    private static final List<InventoryListener> listeners =
+            new CopyOnWriteArrayList<>(List.of(buildable, valuation, reorders));
+    private static final IdAllocator partIds = new IdAllocator(dataDirectory().resolve("part-ids"), ID_BLOCK_SIZE);
+    private static final IdAllocator productIds = new IdAllocator(dataDirectory().resolve("product-ids"), ID_BLOCK_SIZE);
+
+    /**
+     * Retrieves the directory where the inventory keeps its files.
+     * It is read from the inventory.dataDir system property and defaults to .c482 in the user's home directory.
+     * @return The data directory.
+     */
+    public static Path dataDirectory() {
+        String configured = System.getProperty("inventory.dataDir");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".c482");
+    }
+
+    /**
+     * Registers a listener to be told about every change made through Inventory.
+     * @param listener The listener to add.
+     */
+    public static void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a listener about changes.
+     * @param listener The listener to remove.
+     */
+    public static void removeListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs a task while no other thread can change the inventory.
+     * Other threads calling a mutator or a part's stock operations wait until it returns,
+     * as do name searches. Lookups by id go ahead.
+     * The task holds the index write lock and every stock stripe, so it must not be called
+     * from a listener handling a stock change.
+     * @param task The task to run.
+     */
+    public static void runExclusive(Runnable task) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(ALL_STRIPES);
+        try {
+            task.run();
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies every part in the inventory, ordered by id.
+     * @return A new list of the parts.
+     */
+    public static List<Part> copyParts() {
+        List<Part> parts = new ArrayList<>();
+        indexLock.readLock().lock();
+        try {
+            if (partColumns != null) {
+                partColumns.collectAll(parts);
+            } else {
+                partsById.forEach((id, part) -> parts.add(part));
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        parts.sort(Comparator.comparingInt(Part::getId));
+        return parts;
+    }
+
+    /**
+     * Copies every product in the inventory, ordered by id.
+     * @return A new list of the products.
+     */
+    public static List<Product> copyProducts() {
+        List<Product> products = new ArrayList<>();
+        indexLock.readLock().lock();
+        try {
+            productsById.forEach((id, product) -> products.add(product));
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        products.sort(Comparator.comparingInt(Product::getId));
+        return products;
+    }
+
+    /**
+     * Copies a product's associated parts.
+     * The copy is taken under the read side of the index lock, so it is never caught halfway
+     * through a change made with Product.addAssociatedPart, deleteAssociatedPart or
+     * setAssociatedParts, and it can be read on any thread.
+     * @param product The product.
+     * @return A new list of the product's associated parts, in order.
+     */
+    public static List<Part> copyAssociatedParts(Product product) {
+        indexLock.readLock().lock();
+        try {
+            return new ArrayList<>(product.getAllAssociatedParts());
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the value of every part in the inventory, the sum of price times stock.
+     * The total is kept up to date as parts change, so this does not walk the parts.
+     * @return The total value.
+     */
+    public static BigDecimal getTotalValue() {
+        return valuation.getTotal();
+    }
+
+    /**
+     * Retrieves the value of the InHouse parts in the inventory.
+     * @return The InHouse value.
+     */
+    public static BigDecimal getInHouseValue() {
+        return valuation.getInHouse();
+    }
+
+    /**
+     * Retrieves the value of the Outsourced parts in the inventory.
+     * @return The Outsourced value.
+     */
+    public static BigDecimal getOutsourcedValue() {
+        return valuation.getOutsourced();
+    }
+
+    /**
+     * Retrieves the value of the Outsourced parts from one supplier.
+     * @param companyName The supplier's company name.
+     * @return The supplier's value, or zero if no part in the inventory comes from it.
+     */
+    public static BigDecimal getSupplierValue(String companyName) {
+        return valuation.getSupplier(companyName);
+    }
+
+    /**
+     * Copies the value of every supplier with parts in the inventory.
+     * @return A new map from company name to value.
+     */
+    public static Map<String, BigDecimal> getSupplierValues() {
+        return valuation.getSuppliers();
+    }
+
+    /**
+     * Retrieves the parts whose stock is closest to their minimum.
+     * The first call ranks every part once. After that the ranking is kept up to date as parts
+     * change, so this only visits the parts it returns.
+     * The caller must not hold the index lock, as a listener does.
+     * @param count The largest number of parts to return.
+     * @return Up to count parts, lowest ratio of stock to minimum first.
+     */
+    public static ObservableList<Part> lookupLowestStockParts(int count) {
+        rankStockLevels();
+        return FXCollections.observableArrayList(reorders.getParts().lowest(count));
+    }
+
+    /**
+     * Retrieves every part whose stock is at or below its minimum.
+     * Only those parts are visited. The caller must not hold the index lock.
+     * @return The parts to reorder, lowest ratio of stock to minimum first.
+     */
+    public static ObservableList<Part> lookupLowStockParts() {
+        rankStockLevels();
+        return FXCollections.observableArrayList(reorders.getParts().low());
+    }
+
+    /**
+     * Retrieves the products whose stock is closest to their minimum.
+     * The caller must not hold the index lock.
+     * @param count The largest number of products to return.
+     * @return Up to count products, lowest ratio of stock to minimum first.
+     */
+    public static ObservableList<Product> lookupLowestStockProducts(int count) {
+        rankStockLevels();
+        return FXCollections.observableArrayList(reorders.getProducts().lowest(count));
+    }
+
+    /**
+     * Retrieves every product whose stock is at or below its minimum.
+     * The caller must not hold the index lock.
+     * @return The products to reorder, lowest ratio of stock to minimum first.
+     */
+    public static ObservableList<Product> lookupLowStockProducts() {
+        rankStockLevels();
+        return FXCollections.observableArrayList(reorders.getProducts().low());
+    }
+
+    /**
+     * Registers a listener for reorder alerts, sent when a part or product runs low or is restocked.
+     * The caller must not hold the index lock.
+     * @param listener The listener to add.
+     */
+    public static void addReorderListener(ReorderListener listener) {
+        rankStockLevels();
+        reorders.subscribe(listener);
+    }
+
+    /**
+     * Unregisters a listener for reorder alerts.
+     * @param listener The listener to remove.
+     */
+    public static void removeReorderListener(ReorderListener listener) {
+        reorders.unsubscribe(listener);
+    }
+
+    /**
+     * Retrieves the number of units of a product that could be built from current part stock.
+     * The quantity is kept up to date as stock changes, so this does not walk the product's parts.
+     * @param product The product.
+     * @return The buildable quantity, or 0 if the product is not in the inventory.
+     */
+    public static int getBuildableQuantity(Product product) {
+        return buildable.getBuildable(product);
+    }
+
+    /**
+     * Retrieves an observable buildable quantity for a product, updated on the JavaFX application thread.
+     * @param product The product.
+     * @return The property holding the product's buildable quantity.
+     */
+    public static ReadOnlyIntegerProperty buildableQuantityProperty(Product product) {
+        return buildable.buildableProperty(product);
+    }
+
+    /**
+     * Retrieves the number of parts in the inventory.
+     * @return The part count.
+     */
+    public static int getPartCount() {
+        return partColumns != null ? partColumns.recordCount() : partsById.size();
+    }
+
+    /**
+     * Retrieves the number of products in the inventory.
+     * @return The product count.
+     */
+    public static int getProductCount() {
+        return productsById.size();
+    }
+
+    /**
+     * Passes every part to an action without copying the inventory or blocking changes.
+     * Parts are visited in no particular order, and a part changed during the walk may be
+     * seen before or after the change.
+     * @param action The action to call for each part.
+     */
+    public static void forEachPart(Consumer<? super Part> action) {
+        if (partColumns != null) {
+            for (int slot = 0; slot < partColumns.slotCount(); slot++) {
+                Part part = partColumns.recordAt(slot);
+                if (part != null) {
+                    action.accept(part);
+                }
+            }
+            return;
+        }
+        partsById.forEach((id, part) -> action.accept(part));
+    }
+
+    /**
+     * Passes every product to an action without copying the inventory or blocking changes.
+     * Products are visited in no particular order, and a product changed during the walk may be
+     * seen before or after the change.
+     * @param action The action to call for each product.
+     */
+    public static void forEachProduct(Consumer<? super Product> action) {
+        productsById.forEach((id, product) -> action.accept(product));
+    }
+
+    /**
+     * Allocates an id for a new part.
+     * @return A part id that has not been used before, including across restarts.
+     */
+    public static int nextPartId() {
+        return partIds.nextId();
+    }
+
+    /**
+     * Allocates an id for a new product.
+     * @return A product id that has not been used before, including across restarts.
+     */
+    public static int nextProductId() {
+        return productIds.nextId();
+    }
 
     /**
      * Adds a part to the inventory.
      * @param newestPart The part to add to the inventory.
      */
     public static void addPart(Part newestPart) {
-        allParts.add(newestPart);
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripeOf(newestPart));
+        try {
+            Part stored = indexPart(newestPart);
+            fire(listener -> listener.partAdded(stored));
+            partListBridge.add(stored);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of parts to the inventory.
+     * The indexes are updated under one lock and the parts list reports one change.
+     * @param newParts The parts to add to the inventory.
+     */
+    public static void addParts(Collection<? extends Part> newParts) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesOf(newParts));
+        try {
+            List<Part> added = new ArrayList<>(newParts.size());
+            for (Part part : newParts) {
+                Part stored = indexPart(part);
+                fire(listener -> listener.partAdded(stored));
+                added.add(stored);
+            }
+            partListBridge.addAll(added);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a part to the inventory unless a part with its id is already there.
+     * The check and the add are made under one lock, so two threads adding the same id cannot both succeed.
+     * @param newestPart The part to add to the inventory.
+     * @return True if the part was added, false if its id was taken.
+     */
+    public static boolean addPartIfAbsent(Part newestPart) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripeOf(newestPart));
+        try {
+            if (lookupPart(newestPart.getId()) != null) {
+                return false;
+            }
+            addPart(newestPart);
+            return true;
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
     }
 
     /**
      * Retrieves all parts in the inventory.
+     * The list is updated on the JavaFX application thread and should only be read there.
+     * Use the Inventory methods rather than modifying it directly.
      * @return An observable list containing all parts in the inventory.
      */
     public static ObservableList<Part> getAllParts() {
         return allParts;
     }
 
+    /**
+     * Retrieves a view of all parts that can be sorted by "id", "name" or "price".
+     * Each order is built the first time it is chosen and then kept up to date with every change,
+     * so switching orders and editing a part do not re-sort the list.
+     * @return The sortable view of the parts list.
+     */
+    public static SortedListView<Part> getSortedParts() {
+        return sortedParts;
+    }
+
     /**
      * Adds a product to the inventory.
      * @param newestProduct The product to add to the inventory.
      */
     public static void addProduct(Product newestProduct) {
-        allProducts.add(newestProduct);
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesUsedBy(newestProduct));
+        try {
+            indexProduct(newestProduct);
+            fire(listener -> listener.productAdded(newestProduct));
+            productListBridge.add(newestProduct);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of products to the inventory.
+     * The indexes are updated under one lock and the products list reports one change.
+     * @param newProducts The products to add to the inventory.
+     */
+    public static void addProducts(Collection<? extends Product> newProducts) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(ALL_STRIPES);
+        try {
+            for (Product product : newProducts) {
+                indexProduct(product);
+                fire(listener -> listener.productAdded(product));
+            }
+            productListBridge.addAll(newProducts);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a product to the inventory unless a product with its id is already there.
+     * The check and the add are made under one lock, so two threads adding the same id cannot both succeed.
+     * @param newestProduct The product to add to the inventory.
+     * @return True if the product was added, false if its id was taken.
+     */
+    public static boolean addProductIfAbsent(Product newestProduct) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesUsedBy(newestProduct));
+        try {
+            if (productsById.get(newestProduct.getId()) != null) {
+                return false;
+            }
+            addProduct(newestProduct);
+            return true;
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
     }
 
     /**
      * Retrieves all products in the inventory.
+     * The list is updated on the JavaFX application thread and should only be read there.
+     * Use the Inventory methods rather than modifying it directly.
      * @return An observable list containing all products in the inventory.
      */
     public static ObservableList<Product> getAllProducts() {
         return allProducts;
     }
 
+    /**
+     * Retrieves a view of all products that can be sorted by "id", "name" or "price".
+     * @return The sortable view of the products list.
+     */
+    public static SortedListView<Product> getSortedProducts() {
+        return sortedProducts;
+    }
+
     /**
      * Searches for a part in the inventory based on the part ID.
+     * The lookup goes through the id index, so it does not scan the parts list.
      * @param partID The ID of the part to search for.
      * @return The found part, or null if no part is found with the specified ID.
      */
     public static Part lookupPart(int partID) {
-        for (Part part : allParts) {
-            if (part.getId() == partID) {
-                return part;
-            }
+        if (partColumns != null) {
+            return partColumns.findById(partID);
         }
-        return null;
+        return partsById.get(partID);
     }
 
     /**
      * Searches for a product in the inventory based on the product ID.
+     * The lookup goes through the id index, so it does not scan the products list.
      * @param id The ID of the product to search for.
      * @return The found product, or null if no product is found.
      */
     public static Product lookupProduct(int id) {
-        for (Product product : allProducts) {
-            if (product.getId() == id) {
-                return product;
-            }
-        }
-        return null;
+        return productsById.get(id);
     }
 
     /**
      * Searches for parts in the inventory based on the part name.
+     * Terms of three or more characters are answered from the trigram index;
+     * shorter terms are checked against each name where the prefix index holds it.
      * @param partName The name of the part to search for.
-     * @return An observable list of parts that match the search criteria.
+     * @return An observable list of parts that match the search criteria, ordered by id.
      */
     public static ObservableList<Part> lookupPart(String partName) {
-        ObservableList<Part> PartName = FXCollections.observableArrayList();
+        List<Part> PartName = new ArrayList<>();
 
-        for (Part part : allParts) {
-            if (part.getName().contains(partName)) {
-                PartName.add(part);
+        if (partColumns != null) {
+            partColumns.collectNameContaining(partName, PartName);
+        } else {
+            indexPartNames();
+            indexLock.readLock().lock();
+            try {
+                if (TrigramIndex.canSearch(partName)) {
+                    partNameGrams.collect(partName, PartName);
+                } else {
+                    partsByName.collectContaining(partName, PartName);
+                }
+            } finally {
+                indexLock.readLock().unlock();
             }
         }
-        return PartName;
+        PartName.sort(Comparator.comparingInt(Part::getId));
+        return FXCollections.observableArrayList(PartName);
     }
 
     /**
      * Searches for products in the inventory based on the product name.
+     * Terms of three or more characters are answered from the trigram index;
+     * shorter terms are checked against each name where the prefix index holds it.
      * @param productName The name of the product to search for.
-     * @return An observable list of products that match the search criteria.
+     * @return An observable list of products that match the search criteria, ordered by id.
      */
     public static ObservableList<Product> lookupProduct(String productName) {
-        ObservableList<Product> productNameList = FXCollections.observableArrayList();
+        List<Product> productNameList = new ArrayList<>();
+
+        indexProductNames();
+        indexLock.readLock().lock();
+        try {
+            if (TrigramIndex.canSearch(productName)) {
+                productNameGrams.collect(productName, productNameList);
+            } else {
+                productsByName.collectContaining(productName, productNameList);
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        productNameList.sort(Comparator.comparingInt(Product::getId));
+        return FXCollections.observableArrayList(productNameList);
+    }
+
+    /**
+     * Searches for parts whose name starts with the given text, ignoring case.
+     * Only the matching range of the name index is visited.
+     * @param prefix The start of the part name to search for.
+     * @return An observable list of matching parts, ordered by name.
+     */
+    public static ObservableList<Part> lookupPartsByPrefix(String prefix) {
+        ObservableList<Part> matches = FXCollections.observableArrayList();
+        if (partColumns != null) {
+            partColumns.collectNamePrefix(prefix, matches);
+            return matches;
+        }
+        indexPartNames();
+        indexLock.readLock().lock();
+        try {
+            partsByName.collect(prefix, matches);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    /**
+     * Searches for products whose name starts with the given text, ignoring case.
+     * Only the matching range of the name index is visited.
+     * @param prefix The start of the product name to search for.
+     * @return An observable list of matching products, ordered by name.
+     */
+    public static ObservableList<Product> lookupProductsByPrefix(String prefix) {
+        ObservableList<Product> matches = FXCollections.observableArrayList();
+        indexProductNames();
+        indexLock.readLock().lock();
+        try {
+            productsByName.collect(prefix, matches);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return matches;
+    }
 
-        for (Product product : allProducts) {
-            if (product.getName().contains(productName)) {
-                productNameList.add(product);
+    /**
+     * Searches for the outsourced parts supplied by a company.
+     * The company name is turned into its supplier code once, and each part is matched by comparing codes.
+     * @param companyName The company name to search for.
+     * @return An observable list of the outsourced parts from the company.
+     */
+    public static ObservableList<Part> lookupPartsBySupplier(String companyName) {
+        ObservableList<Part> matches = FXCollections.observableArrayList();
+        int companyCode = SupplierDictionary.find(companyName);
+        if (companyCode == SupplierDictionary.NONE) {
+            return matches;
+        }
+        if (partColumns != null) {
+            partColumns.collectBySupplier(companyCode, matches);
+            return matches;
+        }
+        partsById.forEach((id, part) -> {
+            if (part instanceof Outsourced && ((Outsourced) part).getCompanyCode() == companyCode) {
+                matches.add(part);
             }
+        });
+        return matches;
+    }
+
+    /**
+     * Retrieves the products that list a part as an associated part.
+     * @param partId The id of the part.
+     * @return An observable list of the products using the part.
+     */
+    public static ObservableList<Product> lookupProductsUsingPart(int partId) {
+        indexLock.readLock().lock();
+        try {
+            return FXCollections.observableArrayList(whereUsed.productsUsing(partId));
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether any product in the inventory uses a part.
+     * @param partId The id of the part.
+     * @return True if a product lists the part as an associated part, false otherwise.
+     */
+    public static boolean isPartInUse(int partId) {
+        indexLock.readLock().lock();
+        try {
+            return whereUsed.isUsed(partId);
+        } finally {
+            indexLock.readLock().unlock();
         }
-        return productNameList;
     }
 
     /**
      * Updates a part in the inventory at the specified index.
+     * The index refers to getAllParts, so this should be called on the JavaFX application thread.
+     * Other threads should use updatePart(Part). Nothing is changed if the part at the index has
+     * been replaced or deleted by another thread since the list was last updated.
      * @param index        The index of the part to update.
      * @param selectedPart The updated part to replace the existing part.
      */
     public static void updatePart(int index, Part selectedPart) {
-        allParts.set(index, selectedPart);
+        replacePart(index, allParts.get(index), selectedPart);
+    }
+
+    /**
+     * Updates the part in the inventory that has the same id as the given part.
+     * The part is looked up and replaced under one lock, so a concurrent update or delete of the
+     * same id cannot slip in between.
+     * @param selectedPart The updated part to replace the existing part.
+     * @return True if a part with the id was found and replaced, false otherwise.
+     */
+    public static boolean updatePart(Part selectedPart) {
+        indexLock.writeLock().lock();
+        try {
+            Part replacedPart = lookupPart(selectedPart.getId());
+            return replacedPart != null && replacePart(-1, replacedPart, selectedPart);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
     }
 
     /**
      * Updates a product in the inventory at the specified index.
+     * The index refers to getAllProducts, so this should be called on the JavaFX application thread.
+     * Other threads should use updateProduct(Product). Nothing is changed if the product at the
+     * index has been replaced or deleted by another thread since the list was last updated.
      * @param index           The index of the product to update.
      * @param selectedProduct The updated product to replace the existing product.
      */
     public static void updateProduct(int index, Product selectedProduct) {
-        allProducts.set(index, selectedProduct);
+        replaceProduct(index, allProducts.get(index), selectedProduct);
+    }
+
+    /**
+     * Updates the product in the inventory that has the same id as the given product.
+     * The product is looked up and replaced under one lock, as updatePart does.
+     * @param selectedProduct The updated product to replace the existing product.
+     * @return True if a product with the id was found and replaced, false otherwise.
+     */
+    public static boolean updateProduct(Product selectedProduct) {
+        indexLock.writeLock().lock();
+        try {
+            Product replacedProduct = lookupProduct(selectedProduct.getId());
+            return replacedProduct != null && replaceProduct(-1, replacedProduct, selectedProduct);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates a batch of parts, each replacing the part in the inventory with the same id.
+     * The indexes are updated under one lock and the parts list reports one change.
+     * @param updatedParts The updated parts.
+     * @return The number of parts that were found and replaced.
+     */
+    public static int updateParts(Collection<? extends Part> updatedParts) {
+        Map<Part, Part> replacements = new LinkedHashMap<>();
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesOf(updatedParts));
+        try {
+            for (Part part : updatedParts) {
+                Part replacedPart = lookupPart(part.getId());
+                if (replacedPart != null) {
+                    unindexPart(replacedPart);
+                    Part stored = indexPart(part);
+                    fire(listener -> listener.partUpdated(replacedPart, stored));
+                    replacements.put(replacedPart, stored);
+                }
+            }
+            partListBridge.replaceAll(replacements);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return replacements.size();
+    }
+
+    /**
+     * Updates a batch of products, each replacing the product in the inventory with the same id.
+     * The indexes are updated under one lock and the products list reports one change.
+     * @param updatedProducts The updated products.
+     * @return The number of products that were found and replaced.
+     */
+    public static int updateProducts(Collection<? extends Product> updatedProducts) {
+        Map<Product, Product> replacements = new LinkedHashMap<>();
+        indexLock.writeLock().lock();
+        long stripes = lockStock(ALL_STRIPES);
+        try {
+            for (Product product : updatedProducts) {
+                Product replacedProduct = lookupProduct(product.getId());
+                if (replacedProduct != null) {
+                    unindexProduct(replacedProduct);
+                    indexProduct(product);
+                    fire(listener -> listener.productUpdated(replacedProduct, product));
+                    replacements.put(replacedProduct, product);
+                }
+            }
+            productListBridge.replaceAll(replacements);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return replacements.size();
+    }
+
+    /**
+     * Deletes a batch of parts from the inventory.
+     * The indexes are updated under one lock and the parts list reports one change.
+     * @param selectedParts The parts to delete.
+     * @return The number of parts that were found and deleted.
+     */
+    public static int deleteParts(Collection<? extends Part> selectedParts) {
+        List<Part> deleted = new ArrayList<>(selectedParts.size());
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesOf(selectedParts));
+        try {
+            for (Part part : selectedParts) {
+                if (isPartStocked(part)) {
+                    unindexPart(part);
+                    fire(listener -> listener.partDeleted(part));
+                    deleted.add(part);
+                }
+            }
+            partListBridge.removeAll(deleted);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return deleted.size();
+    }
+
+    /**
+     * Deletes a batch of products from the inventory.
+     * The indexes are updated under one lock and the products list reports one change.
+     * @param selectedProducts The products to delete.
+     * @return The number of products that were found and deleted.
+     */
+    public static int deleteProducts(Collection<? extends Product> selectedProducts) {
+        List<Product> deleted = new ArrayList<>(selectedProducts.size());
+        indexLock.writeLock().lock();
+        long stripes = lockStock(ALL_STRIPES);
+        try {
+            for (Product product : selectedProducts) {
+                if (isStocked(product)) {
+                    unindexProduct(product);
+                    fire(listener -> listener.productDeleted(product));
+                    deleted.add(product);
+                }
+            }
+            productListBridge.removeAll(deleted);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return deleted.size();
     }
 
     /**
@@ -128,11 +861,37 @@ public class Inventory {
      * @return True if the part is successfully deleted and false otherwise.
      */
     public static boolean deletePart(Part selectedPart) {
-        if (allParts.contains(selectedPart)) {
-            allParts.remove(selectedPart);
-            return true;
-        } else {
-            return false;
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripeOf(selectedPart));
+        try {
+            if (!isPartStocked(selectedPart)) {
+                return false;
+            }
+            unindexPart(selectedPart);
+            fire(listener -> listener.partDeleted(selectedPart));
+            partListBridge.remove(selectedPart);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a part from the inventory unless a product uses it.
+     * The check and the delete are made under one lock, so a product cannot start using the
+     * part in between.
+     * @param selectedPart The part to delete from the inventory.
+     * @return True if the part was deleted, false if it is in use or not in the inventory.
+     */
+    public static boolean deletePartIfUnused(Part selectedPart) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripeOf(selectedPart));
+        try {
+            return !whereUsed.isUsed(selectedPart.getId()) && deletePart(selectedPart);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
         }
     }
 
@@ -142,11 +901,655 @@ public class Inventory {
      * @return True if the product is successfully deleted, false otherwise.
      */
     public static boolean deleteProduct(Product selectedProduct) {
-        if (allProducts.contains(selectedProduct)) {
-            allProducts.remove(selectedProduct);
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesUsedBy(selectedProduct));
+        try {
+            if (!isStocked(selectedProduct)) {
+                return false;
+            }
+            unindexProduct(selectedProduct);
+            fire(listener -> listener.productDeleted(selectedProduct));
+            productListBridge.remove(selectedProduct);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a product from the inventory unless it has associated parts.
+     * The check and the delete are made under one lock, so a part cannot be associated with the
+     * product in between.
+     * @param selectedProduct The product to delete from the inventory.
+     * @return True if the product was deleted, false if it has associated parts or is not in the inventory.
+     */
+    public static boolean deleteProductIfEmpty(Product selectedProduct) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesUsedBy(selectedProduct));
+        try {
+            return selectedProduct.getAllAssociatedParts().isEmpty() && deleteProduct(selectedProduct);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a quantity of a product by taking its associated parts out of stock together.
+     * Every part is reserved first, in part id order, so a build that falls short releases what
+     * it reserved without any stock having changed. The reservations are then consumed as one
+     * step and reported as one stocksChanged event, which the mutation log writes as one record,
+     * so a build is never left partly applied, even by a crash.
+     * Builds never wait for each other. Two builds competing for the last units of a part are
+     * settled by the part's compare-and-set, and the loser gives back what it reserved.
+     * Each associated part is looked up by id, so stock is taken from the part the inventory
+     * holds now even if the product still refers to an older copy. The read side of the index
+     * lock is held from the lookups to the end of the build, so no part can be replaced or
+     * deleted part way through; a build of a product using a part that is no longer in the
+     * inventory fails.
+     * The product's own stock is left to the caller.
+     * @param product  The product to build.
+     * @param quantity The number of units to build.
+     * @return True if the parts were consumed, false if any of them is short or missing.
+     */
+    public static boolean buildProduct(Product product, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        indexLock.readLock().lock();
+        try {
+            Map<Part, Integer> counts = new HashMap<>();
+            for (Part part : product.getAllAssociatedParts()) {
+                Part current = lookupPart(part.getId());
+                if (current == null) {
+                    return false;
+                }
+                counts.merge(current, 1, Integer::sum);
+            }
+            List<Part> parts = new ArrayList<>(counts.keySet());
+            parts.sort(Comparator.comparingInt(Part::getId));
+            int[] needed = new int[parts.size()];
+            for (int i = 0; i < needed.length; i++) {
+                needed[i] = Math.multiplyExact(counts.get(parts.get(i)), quantity);
+            }
+            int reserved = 0;
+            while (reserved < needed.length && parts.get(reserved).reserve(needed[reserved])) {
+                reserved++;
+            }
+            if (reserved < needed.length) {
+                for (int i = 0; i < reserved; i++) {
+                    parts.get(i).release(needed[i]);
+                }
+                return false;
+            }
+            return consumeReserved(parts, needed);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Swaps one part for another in the indexes and the parts list.
+     * @param index        The index of the part in getAllParts, or -1 if it is not known.
+     * @param replacedPart The part being replaced.
+     * @param selectedPart The part taking its place.
+     * @return True if the part was replaced, false if it is no longer in the inventory.
+     */
+    private static boolean replacePart(int index, Part replacedPart, Part selectedPart) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripeOf(replacedPart) | stripeOf(selectedPart));
+        try {
+            if (!isPartStocked(replacedPart)) {
+                return false;
+            }
+            unindexPart(replacedPart);
+            Part stored = indexPart(selectedPart);
+            fire(listener -> listener.partUpdated(replacedPart, stored));
+            partListBridge.replace(index, replacedPart, stored);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Swaps one product for another in the indexes and the products list.
+     * @param index           The index of the product in getAllProducts, or -1 if it is not known.
+     * @param replacedProduct The product being replaced.
+     * @param selectedProduct The product taking its place.
+     * @return True if the product was replaced, false if it is no longer in the inventory.
+     */
+    private static boolean replaceProduct(int index, Product replacedProduct, Product selectedProduct) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripesUsedBy(replacedProduct) | stripesUsedBy(selectedProduct));
+        try {
+            if (!isStocked(replacedProduct)) {
+                return false;
+            }
+            unindexProduct(replacedProduct);
+            indexProduct(selectedProduct);
+            fire(listener -> listener.productUpdated(replacedProduct, selectedProduct));
+            productListBridge.replace(index, replacedProduct, selectedProduct);
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Adds a part to the lookup indexes. The caller must hold the index write lock.
+     * In columnar mode the part is copied into the column store, and the view of the copy is
+     * what the listeners and the parts list should be given.
+     * @param part The part to index.
+     * @return The part as stored in the inventory.
+     */
+    private static Part indexPart(Part part) {
+        partIds.observe(part.getId());
+        if (partColumns != null) {
+            return partColumns.store(part);
+        }
+        partsById.put(part.getId(), part);
+        if (partNamesIndexed) {
+            partsByName.add(part);
+            partNameGrams.add(part);
+        }
+        return part;
+    }
+
+    /**
+     * Removes a part from the lookup indexes. The caller must hold the index write lock.
+     * @param part The part to remove.
+     */
+    private static void unindexPart(Part part) {
+        if (partColumns != null) {
+            partColumns.unstore(part);
+            return;
+        }
+        partsById.remove(part.getId(), part);
+        if (partNamesIndexed) {
+            partsByName.remove(part);
+            partNameGrams.remove(part);
+        }
+    }
+
+    /**
+     * Creates a sortable view of a list with the id, name and price orders the tables offer.
+     * @param source The list to view.
+     * @param id     The function that reads an element's id.
+     * @param name   The function that reads an element's name.
+     * @param price  The function that reads an element's price.
+     * @param <E>    The type of element.
+     * @return The view.
+     */
+    private static <E> SortedListView<E> sortedView(ObservableList<E> source, ToIntFunction<E> id,
+                                                    Function<E, String> name, ToDoubleFunction<E> price) {
+        SortedListView<E> view = new SortedListView<>(source, id);
+        view.addOrder("id", id::applyAsInt);
+        view.addOrder("name", name);
+        view.addOrder("price", price::applyAsDouble);
+        return view;
+    }
+
+    /**
+     * Ranks every part and product by stock level if nothing has needed the ranking yet.
+     * The caller must not hold the index lock.
+     */
+    private static void rankStockLevels() {
+        if (reorders.isActive()) {
+            return;
+        }
+        indexLock.writeLock().lock();
+        long stripes = lockStock(ALL_STRIPES);
+        try {
+            if (!reorders.isActive()) {
+                forEachPart(reorders::rankPart);
+                forEachProduct(reorders::rankProduct);
+                reorders.activate();
+            }
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the part name indexes from the id index if no search has needed them yet.
+     * The caller must not hold the index lock.
+     */
+    private static void indexPartNames() {
+        if (partNamesIndexed) {
+            return;
+        }
+        indexLock.writeLock().lock();
+        try {
+            if (!partNamesIndexed) {
+                partsById.forEach((id, part) -> {
+                    partsByName.add(part);
+                    partNameGrams.add(part);
+                });
+                partNamesIndexed = true;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the product name indexes from the id index if no search has needed them yet.
+     * The caller must not hold the index lock.
+     */
+    private static void indexProductNames() {
+        if (productNamesIndexed) {
+            return;
+        }
+        indexLock.writeLock().lock();
+        try {
+            if (!productNamesIndexed) {
+                productsById.forEach((id, product) -> {
+                    productsByName.add(product);
+                    productNameGrams.add(product);
+                });
+                productNamesIndexed = true;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a product to the lookup indexes. The caller must hold the index write lock.
+     * @param product The product to index.
+     */
+    private static void indexProduct(Product product) {
+        productIds.observe(product.getId());
+        productsById.put(product.getId(), product);
+        if (productNamesIndexed) {
+            productsByName.add(product);
+            productNameGrams.add(product);
+        }
+        whereUsed.linkAll(product);
+    }
+
+    /**
+     * Removes a product from the lookup indexes. The caller must hold the index write lock.
+     * @param product The product to remove.
+     */
+    private static void unindexProduct(Product product) {
+        productsById.remove(product.getId(), product);
+        if (productNamesIndexed) {
+            productsByName.remove(product);
+            productNameGrams.remove(product);
+        }
+        whereUsed.unlinkAll(product);
+    }
+
+    /**
+     * Adds a part to a product's associated parts and, if the product is in the inventory,
+     * records that it now uses the part. The list is changed under the index lock, so
+     * copyAssociatedParts never sees it half changed.
+     * Called by Product.addAssociatedPart.
+     * @param product The product.
+     * @param part    The part it now uses.
+     */
+    static void associatedPartAdded(Product product, Part part) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripeOf(part));
+        try {
+            product.getAllAssociatedParts().add(part);
+            if (isStocked(product)) {
+                whereUsed.link(product, part.getId());
+                fire(listener -> listener.associatedPartAdded(product, part));
+            }
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every associated part with a part's id from a product and, if the product is in
+     * the inventory, records that it no longer uses the part. The list is changed under the
+     * index lock.
+     * Called by Product.deleteAssociatedPart.
+     * @param product The product.
+     * @param part    The part it no longer uses.
+     * @return True if a part was removed, false otherwise.
+     */
+    static boolean associatedPartRemoved(Product product, Part part) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(stripeOf(part));
+        try {
+            boolean removed = product.getAllAssociatedParts().removeIf(associated -> associated.getId() == part.getId());
+            if (removed && isStocked(product)) {
+                whereUsed.unlink(product, part.getId());
+                fire(listener -> listener.associatedPartRemoved(product, part));
+            }
+            return removed;
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces a product's associated parts list, moving its where-used entries from the old
+     * parts to the new ones. The list is swapped under the index lock.
+     * Called by Product.setAssociatedParts.
+     * @param product The product.
+     * @param swap    Installs the new list.
+     */
+    static void associatedPartsRelinked(Product product, Runnable swap) {
+        indexLock.writeLock().lock();
+        long stripes = lockStock(ALL_STRIPES);
+        try {
+            boolean stocked = isStocked(product);
+            if (stocked) {
+                relink(product, false);
+            }
+            swap.run();
+            if (stocked) {
+                relink(product, true);
+            }
+        } finally {
+            unlockStock(stripes);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private static void relink(Product product, boolean linked) {
+        for (Part part : product.getAllAssociatedParts()) {
+            if (linked) {
+                whereUsed.link(product, part.getId());
+                fire(listener -> listener.associatedPartAdded(product, part));
+            } else {
+                whereUsed.unlink(product, part.getId());
+                fire(listener -> listener.associatedPartRemoved(product, part));
+            }
+        }
+    }
+
+    /**
+     * Creates the locks guarding stock changes, one per stripe of part ids.
+     * @return The locks.
+     */
+    private static ReentrantReadWriteLock[] newStockLocks() {
+        ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[STOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        return locks;
+    }
+
+    private static int stripeIndex(int partId) {
+        return partId & (STOCK_STRIPES - 1);
+    }
+
+    /**
+     * Finds the stock stripe of a part.
+     * In columnar mode a view of a deleted part gets an arbitrary stripe; callers find it is
+     * no longer stocked once they hold the lock.
+     * @param part The part.
+     * @return A set of stripes, as bits, holding just the part's stripe.
+     */
+    private static long stripeOf(Part part) {
+        return 1L << stripeIndex(partColumns != null ? partColumns.idOf(part) : part.getId());
+    }
+
+    /**
+     * Finds the stock stripes of a collection of parts.
+     * @param parts The parts.
+     * @return The set of stripes, as bits.
+     */
+    private static long stripesOf(Collection<? extends Part> parts) {
+        long stripes = 0;
+        for (Part part : parts) {
+            stripes |= stripeOf(part);
+        }
+        return stripes;
+    }
+
+    /**
+     * Finds the stock stripes of a product's associated parts.
+     * The caller must hold the index write lock, so the product's parts do not change.
+     * @param product The product.
+     * @return The set of stripes, as bits.
+     */
+    private static long stripesUsedBy(Product product) {
+        return stripesOf(product.getAllAssociatedParts());
+    }
+
+    /**
+     * Takes the write side of a set of stock stripes, in stripe order, so stock operations on
+     * their parts wait until unlockStock is called. The caller must hold the index write lock.
+     * @param stripes The set of stripes, as bits.
+     * @return The same set, to pass to unlockStock.
+     */
+    private static long lockStock(long stripes) {
+        for (long rest = stripes; rest != 0; rest &= rest - 1) {
+            stockLocks[Long.numberOfTrailingZeros(rest)].writeLock().lock();
+        }
+        return stripes;
+    }
+
+    private static void unlockStock(long stripes) {
+        for (long rest = stripes; rest != 0; rest &= rest - 1) {
+            stockLocks[Long.numberOfTrailingZeros(rest)].writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the read side of a set of stock stripes, in stripe order.
+     * @param stripes The set of stripes, as bits.
+     * @return The same set, to pass to unshareStock.
+     */
+    private static long shareStock(long stripes) {
+        for (long rest = stripes; rest != 0; rest &= rest - 1) {
+            stockLocks[Long.numberOfTrailingZeros(rest)].readLock().lock();
+        }
+        return stripes;
+    }
+
+    private static void unshareStock(long stripes) {
+        for (long rest = stripes; rest != 0; rest &= rest - 1) {
+            stockLocks[Long.numberOfTrailingZeros(rest)].readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a part is the one stored in the inventory under its id.
+     * @param part The part to check.
+     * @return True if the part is in the inventory, false otherwise.
+     */
+    private static boolean isPartStocked(Part part) {
+        if (partColumns != null) {
+            return partColumns.isStored(part);
+        }
+        return partsById.get(part.getId()) == part;
+    }
+
+    /**
+     * Applies a stock operation to a part with compare-and-set, retrying if another thread
+     * changes the part's stock first.
+     * The index lock is not taken, so adding, updating and deleting items never holds up a
+     * stock operation. Only the read side of the part's stock stripe is held, which stock
+     * operations share, so they never wait for each other. Changes that read a part's stock
+     * outright, such as adding or replacing the part, a product that uses it, or a checkpoint,
+     * hold the write side, so they see either both the change and its event or neither.
+     * If the stock level or the reserved units change and the part is in the inventory,
+     * listeners are told.
+     * @param part   The part to change.
+     * @param change Works out the next packed state from the current one, or returns Part.REJECTED.
+     * @return True if the change was applied, false if it was rejected.
+     */
+    static boolean changeStock(Part part, LongUnaryOperator change) {
+        ReentrantReadWriteLock.ReadLock stripe = stockLocks[stripeIndex(part.getId())].readLock();
+        stripe.lock();
+        try {
+            long state;
+            long next;
+            do {
+                state = part.stockState();
+                next = change.applyAsLong(state);
+                if (next == Part.REJECTED) {
+                    return false;
+                }
+            } while (!part.compareAndSetStockState(state, next));
+            int oldStock = Part.stockOf(state);
+            int newStock = Part.stockOf(next);
+            int oldReserved = Part.reservedOf(state);
+            int newReserved = Part.reservedOf(next);
+            if ((oldStock != newStock || oldReserved != newReserved) && !listeners.isEmpty() && isPartStocked(part)) {
+                if (oldStock != newStock) {
+                    fire(listener -> listener.stockChanged(part, oldStock, newStock));
+                }
+                if (oldReserved != newReserved) {
+                    fire(listener -> listener.reservationChanged(part, oldReserved, newReserved));
+                }
+            }
             return true;
-        } else {
-            return false;
+        } finally {
+            stripe.unlock();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the compare-and-set loop of a stock operation that reports nothing to listeners.
+     * @param part   The part to change.
+     * @param change Works out the next packed state from the current one, or returns Part.REJECTED.
+     * @return The state the change was applied to, or Part.REJECTED if it was rejected.
+     */
+    private static long updateStockState(Part part, LongUnaryOperator change) {
+        long state;
+        long next;
+        do {
+            state = part.stockState();
+            next = change.applyAsLong(state);
+            if (next == Part.REJECTED) {
+                return Part.REJECTED;
+            }
+        } while (!part.compareAndSetStockState(state, next));
+        return state;
+    }
+
+    /**
+     * Consumes reservations already held on a list of parts, all or none.
+     * If any part refuses, because its minimum was raised after it was reserved, the parts
+     * consumed so far are put back and every reservation is released.
+     * The read side of the parts' stock stripes is held throughout, so no checkpoint can fall
+     * between the parts. The caller must hold the read side of the index lock.
+     * @param parts      The parts, each listed once.
+     * @param quantities The reserved units to consume from each part.
+     * @return True if every part was consumed, false if none was.
+     */
+    private static boolean consumeReserved(List<Part> parts, int[] quantities) {
+        int[] oldStocks = new int[parts.size()];
+        long stripes = shareStock(stripesOf(parts));
+        try {
+            int consumed = 0;
+            while (consumed < parts.size()) {
+                Part part = parts.get(consumed);
+                int quantity = quantities[consumed];
+                long state = updateStockState(part, current -> {
+                    int stock = Part.stockOf(current);
+                    int reserved = Part.reservedOf(current);
+                    if (reserved < quantity || stock - quantity < part.getMin()) {
+                        return Part.REJECTED;
+                    }
+                    return Part.pack(stock - quantity, reserved - quantity);
+                });
+                if (state == Part.REJECTED) {
+                    break;
+                }
+                oldStocks[consumed++] = Part.stockOf(state);
+            }
+            if (consumed < parts.size()) {
+                for (int i = 0; i < parts.size(); i++) {
+                    int restored = i < consumed ? quantities[i] : 0;
+                    int released = quantities[i];
+                    updateStockState(parts.get(i), current -> Part.pack(Part.stockOf(current) + restored,
+                            Part.reservedOf(current) + restored - released));
+                }
+                if (!listeners.isEmpty()) {
+                    fireReservationsReleased(parts, quantities);
+                }
+                return false;
+            }
+            if (!listeners.isEmpty()) {
+                fireStocksChanged(parts, quantities, oldStocks);
+                fireReservationsReleased(parts, quantities);
+            }
+            return true;
+        } finally {
+            unshareStock(stripes);
+        }
+    }
+
+    /**
+     * Reports the reservations a build gave up, by consuming or releasing them, for the parts
+     * that are in the inventory.
+     * Each part's reserved count after the change is read from the part, so it includes any
+     * reservation made since by another thread; the difference between the counts is still right.
+     * @param parts      The parts.
+     * @param quantities The reserved units given up on each part.
+     */
+    private static void fireReservationsReleased(List<Part> parts, int[] quantities) {
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            if (isPartStocked(part)) {
+                int newReserved = part.getReserved();
+                int oldReserved = newReserved + quantities[i];
+                fire(listener -> listener.reservationChanged(part, oldReserved, newReserved));
+            }
+        }
+    }
+
+    /**
+     * Reports the parts of a completed build that are in the inventory as one stocksChanged event.
+     * @param parts      The parts consumed.
+     * @param quantities The units consumed from each part.
+     * @param oldStocks  Each part's stock level before it was consumed.
+     */
+    private static void fireStocksChanged(List<Part> parts, int[] quantities, int[] oldStocks) {
+        List<Part> stocked = new ArrayList<>(parts.size());
+        int[] before = new int[parts.size()];
+        int[] after = new int[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            if (isPartStocked(part)) {
+                before[stocked.size()] = oldStocks[i];
+                after[stocked.size()] = oldStocks[i] - quantities[i];
+                stocked.add(part);
+            }
+        }
+        if (stocked.isEmpty()) {
+            return;
+        }
+        int[] oldLevels = Arrays.copyOf(before, stocked.size());
+        int[] newLevels = Arrays.copyOf(after, stocked.size());
+        fire(listener -> listener.stocksChanged(stocked, oldLevels, newLevels));
+    }
+
+    /**
+     * Passes an event to every listener. The caller must hold the index write lock and the write
+     * side of the stock stripes of the parts the event reads the stock of, except for stock
+     * changes, which hold only the read side of their parts' stripes.
+     * @param event The call to make on each listener.
+     */
+    private static void fire(Consumer<InventoryListener> event) {
+        for (InventoryListener listener : listeners) {
+            event.accept(listener);
+        }
+    }
+
+    /**
+     * Checks whether a product is the one stored in the inventory under its id.
+     * @param product The product to check.
+     * @return True if the product is in the inventory, false otherwise.
+     */
+    private static boolean isStocked(Product product) {
+        return productsById.get(product.getId()) == product;
+    }
+}
@@ -0,0 +1,112 @@
+package model;
+
+import java.util.List;
+
+/**
+ * The InventoryListener interface receives every change made through Inventory.
+ * Listeners are called on the thread that made the change, while Inventory holds its index lock,
+ * so they see changes in the order they were applied. They should return quickly.
+ * Stock changes are the exception, as described on stockChanged.
+ * Every method does nothing by default.
+ */
+public interface InventoryListener {
+
+    /**
+     * Called after a part is added.
+     * @param part The new part.
+     */
+    default void partAdded(Part part) {
+    }
+
+    /**
+     * Called after a part is replaced.
+     * @param oldPart The part that was replaced.
+     * @param newPart The part that took its place.
+     */
+    default void partUpdated(Part oldPart, Part newPart) {
+    }
+
+    /**
+     * Called after a part is deleted.
+     * @param part The deleted part.
+     */
+    default void partDeleted(Part part) {
+    }
+
+    /**
+     * Called after a product is added.
+     * @param product The new product.
+     */
+    default void productAdded(Product product) {
+    }
+
+    /**
+     * Called after a product is replaced.
+     * @param oldProduct The product that was replaced.
+     * @param newProduct The product that took its place.
+     */
+    default void productUpdated(Product oldProduct, Product newProduct) {
+    }
+
+    /**
+     * Called after a product is deleted.
+     * @param product The deleted product.
+     */
+    default void productDeleted(Product product) {
+    }
+
+    /**
+     * Called after a product in the inventory starts using a part.
+     * @param product The product.
+     * @param part    The part it now uses.
+     */
+    default void associatedPartAdded(Product product, Part part) {
+    }
+
+    /**
+     * Called after a product in the inventory stops using a part.
+     * @param product The product.
+     * @param part    The part it no longer uses.
+     */
+    default void associatedPartRemoved(Product product, Part part) {
+    }
+
+    /**
+     * Called after a part's stock level is changed by receive, consume or another stock operation.
+     * These changes do not hold Inventory's index lock, only the read side of the part's stock
+     * stripe, so several can be reported at once, alongside other changes to the inventory, and
+     * not necessarily in the order they were applied. The difference between the two levels is
+     * always right, so listeners should apply it as a delta. A change that reads the part's stock
+     * outright, such as adding or replacing it, is never reported while one of these is.
+     * Listeners must not change the inventory from here.
+     * @param part     The part.
+     * @param oldStock The stock level before the change.
+     * @param newStock The stock level after the change.
+     */
+    default void stockChanged(Part part, int oldStock, int newStock) {
+    }
+
+    /**
+     * Called after the number of units reserved from a part changes, as when units are reserved,
+     * released or consumed. The same rules as stockChanged apply: the difference between the two
+     * counts is always right, but changes may be reported at once and out of order.
+     * @param part        The part.
+     * @param oldReserved The reserved units before the change.
+     * @param newReserved The reserved units after the change.
+     */
+    default void reservationChanged(Part part, int oldReserved, int newReserved) {
+    }
+
+    /**
+     * Called after several parts' stock levels are changed together, as when a product is built.
+     * The same rules as stockChanged apply. By default each part is passed to stockChanged.
+     * @param parts     The parts.
+     * @param oldStocks Each part's stock level before the change.
+     * @param newStocks Each part's stock level after the change.
+     */
+    default void stocksChanged(List<Part> parts, int[] oldStocks, int[] newStocks) {
+        for (int i = 0; i < parts.size(); i++) {
+            stockChanged(parts.get(i), oldStocks[i], newStocks[i]);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package model;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The InventoryStore interface is the storage behind the inventory's parts and products.
+ * It covers the operations the screens use: lookup by id and name, add, update and delete.
+ * MemoryInventoryStore keeps everything in Inventory; other implementations may keep it
+ * elsewhere, such as in a database. The application saves the inventory through this interface
+ * when persistence.InventoryStorage is set to use a database, and loads the whole database into
+ * Inventory a page at a time at startup. The screens' tables show Inventory's lists, so every
+ * part and product is in memory while the application runs, whichever store is used.
+ * Name searches match any part of the name, case-sensitively, as Inventory.lookupPart does.
+ * Implementations report storage failures with StoreException.
+ */
+public interface InventoryStore extends AutoCloseable {
+
+    /**
+     * Finds a part by id.
+     * @param id The id of the part.
+     * @return The part, or null if there is none with the id.
+     */
+    Part lookupPart(int id);
+
+    /**
+     * Finds the parts whose name contains a search term.
+     * @param name The text to search for.
+     * @return The matching parts.
+     */
+    List<Part> lookupParts(String name);
+
+    /**
+     * Finds a product by id, with its associated parts.
+     * @param id The id of the product.
+     * @return The product, or null if there is none with the id.
+     */
+    Product lookupProduct(int id);
+
+    /**
+     * Finds the products whose name contains a search term.
+     * @param name The text to search for.
+     * @return The matching products, with their associated parts.
+     */
+    List<Product> lookupProducts(String name);
+
+    /**
+     * Retrieves a page of parts in id order, so a large store can be read without holding all of it at once.
+     * @param offset The position, in id order, of the first part to return.
+     * @param limit  The largest number of parts to return.
+     * @param after  The part just before the page if the caller has it, or null.
+     * @param before The part just after the page if the caller has it, or null.
+     *               A store may seek from either one's id instead of counting offset parts from the start.
+     * @return Up to limit parts.
+     */
+    List<Part> pageParts(int offset, int limit, Part after, Part before);
+
+    /**
+     * Retrieves a page of products in id order, with their associated parts.
+     * @param offset The position, in id order, of the first product to return.
+     * @param limit  The largest number of products to return.
+     * @param after  The product just before the page if the caller has it, or null.
+     * @param before The product just after the page if the caller has it, or null.
+     *               A store may seek from either one's id instead of counting offset products from the start.
+     * @return Up to limit products.
+     */
+    List<Product> pageProducts(int offset, int limit, Product after, Product before);
+
+    /**
+     * Adds a part.
+     * @param part The part to add.
+     */
+    void addPart(Part part);
+
+    /**
+     * Adds a batch of parts.
+     * @param parts The parts to add.
+     */
+    void addParts(Collection<? extends Part> parts);
+
+    /**
+     * Adds a product and its associations.
+     * @param product The product to add.
+     */
+    void addProduct(Product product);
+
+    /**
+     * Adds a batch of products and their associations.
+     * @param products The products to add.
+     */
+    void addProducts(Collection<? extends Product> products);
+
+    /**
+     * Replaces the part that has the same id as the given part.
+     * @param part The updated part.
+     * @return True if a part with the id was found and replaced, false otherwise.
+     */
+    boolean updatePart(Part part);
+
+    /**
+     * Replaces a batch of parts, each matched by id.
+     * @param parts The updated parts.
+     * @return The number of parts that were found and replaced.
+     */
+    int updateParts(Collection<? extends Part> parts);
+
+    /**
+     * Replaces the product that has the same id as the given product, with its associations.
+     * @param product The updated product.
+     * @return True if a product with the id was found and replaced, false otherwise.
+     */
+    boolean updateProduct(Product product);
+
+    /**
+     * Deletes a part.
+     * @param id The id of the part to delete.
+     * @return True if the part was found and deleted, false otherwise.
+     */
+    boolean deletePart(int id);
+
+    /**
+     * Deletes a product and its associations.
+     * @param id The id of the product to delete.
+     * @return True if the product was found and deleted, false otherwise.
+     */
+    boolean deleteProduct(int id);
+
+    /**
+     * Retrieves the number of parts in the store.
+     * @return The part count.
+     */
+    int getPartCount();
+
+    /**
+     * Retrieves the number of products in the store.
+     * @return The product count.
+     */
+    int getProductCount();
+
+    /**
+     * Releases the store's resources. The store cannot be used afterwards.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,155 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+
+/**
+ * The LowStockIndex class ranks items by how close their stock is to their minimum,
+ * the ratio of stock to min, lowest first.
+ * An item is low once its stock is at or below its minimum. Stock operations never take a part
+ * below its minimum, so that is the point at which it has to be reordered.
+ * Items with a minimum of zero or less never run low and are not ranked.
+ * Each item is re-ranked from its current stock when it changes, in O(log n), so the
+ * lowest items and the low items can be read without looking at the others.
+ * The methods are synchronized, and update reads the item's stock while holding the lock, so
+ * concurrent changes to one item leave it ranked by its latest stock whatever order they arrive in.
+ * @param <T> The type of item being ranked.
+ */
+public class LowStockIndex<T> {
+
+    /**
+     * The Change enum tells whether an update moved an item across its minimum.
+     */
+    public enum Change {
+        NONE,
+        LOW,
+        RESTOCKED
+    }
+
+    private final ToIntFunction<T> idOf;
+    private final ToIntFunction<T> stockOf;
+    private final ToIntFunction<T> minOf;
+    private final TreeSet<Entry<T>> ranking = new TreeSet<>(LowStockIndex::compare);
+    private final IntMap<Entry<T>> entriesById = new IntMap<>();
+
+    /**
+     * Creates an empty index.
+     * @param idOf    The function that reads an item's id.
+     * @param stockOf The function that reads an item's stock level.
+     * @param minOf   The function that reads an item's minimum.
+     */
+    public LowStockIndex(ToIntFunction<T> idOf, ToIntFunction<T> stockOf, ToIntFunction<T> minOf) {
+        this.idOf = idOf;
+        this.stockOf = stockOf;
+        this.minOf = minOf;
+    }
+
+    /**
+     * Adds an item or re-ranks it from its current stock and minimum.
+     * @param item The item.
+     * @return LOW if the item has just run low, RESTOCKED if it has just stopped being low, NONE otherwise.
+     */
+    public synchronized Change update(T item) {
+        int id = idOf.applyAsInt(item);
+        Entry<T> old = entriesById.remove(id);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        boolean wasLow = old != null && old.isLow();
+        Entry<T> entry = new Entry<>(item, id, stockOf.applyAsInt(item), minOf.applyAsInt(item));
+        if (entry.min <= 0) {
+            return wasLow ? Change.RESTOCKED : Change.NONE;
+        }
+        ranking.add(entry);
+        entriesById.put(id, entry);
+        if (entry.isLow() == wasLow) {
+            return Change.NONE;
+        }
+        return wasLow ? Change.RESTOCKED : Change.LOW;
+    }
+
+    /**
+     * Removes an item.
+     * @param item The item to remove. Nothing is removed if a different item holds its id.
+     */
+    public synchronized void remove(T item) {
+        int id = idOf.applyAsInt(item);
+        Entry<T> entry = entriesById.get(id);
+        if (entry != null && entry.item.equals(item)) {
+            entriesById.remove(id);
+            ranking.remove(entry);
+        }
+    }
+
+    /**
+     * Retrieves the items closest to their minimum.
+     * @param count The largest number of items to return.
+     * @return Up to count items, lowest stock-to-minimum ratio first.
+     */
+    public synchronized List<T> lowest(int count) {
+        List<T> items = new ArrayList<>(Math.min(count, ranking.size()));
+        for (Entry<T> entry : ranking) {
+            if (items.size() == count) {
+                break;
+            }
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    /**
+     * Retrieves every low item. Only the low items are visited.
+     * @return The items at or below their minimum, lowest ratio first.
+     */
+    public synchronized List<T> low() {
+        List<T> items = new ArrayList<>();
+        for (Entry<T> entry : ranking) {
+            if (!entry.isLow()) {
+                break;
+            }
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    /**
+     * Retrieves the number of ranked items.
+     * @return The number of items with a positive minimum.
+     */
+    public synchronized int size() {
+        return ranking.size();
+    }
+
+    /**
+     * Orders entries by stock over minimum, comparing the cross products so no division is needed,
+     * and then by id.
+     */
+    private static int compare(Entry<?> a, Entry<?> b) {
+        int byRatio = Long.compare((long) a.stock * b.min, (long) b.stock * a.min);
+        return byRatio != 0 ? byRatio : Integer.compare(a.id, b.id);
+    }
+
+    /**
+     * The Entry class is an item with the stock and minimum it was ranked by.
+     * @param <T> The type of item.
+     */
+    private static final class Entry<T> {
+        private final T item;
+        private final int id;
+        private final int stock;
+        private final int min;
+
+        Entry(T item, int id, int stock, int min) {
+            this.item = item;
+            this.id = id;
+            this.stock = stock;
+            this.min = min;
+        }
+
+        boolean isLow() {
+            return stock <= min;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * The MemoryInventoryStore class is the InventoryStore that keeps everything in Inventory.
+ * Every call goes straight to Inventory, so changes made through the store show up on the
+ * main screen and changes made on the screens show up in the store.
+ */
+public class MemoryInventoryStore implements InventoryStore {
+
+    @Override
+    public Part lookupPart(int id) {
+        return Inventory.lookupPart(id);
+    }
+
+    @Override
+    public List<Part> lookupParts(String name) {
+        return Inventory.lookupPart(name);
+    }
+
+    @Override
+    public Product lookupProduct(int id) {
+        return Inventory.lookupProduct(id);
+    }
+
+    @Override
+    public List<Product> lookupProducts(String name) {
+        return Inventory.lookupProduct(name);
+    }
+
+    /**
+     * Walks the parts once, keeping only the page in a bounded heap, since Inventory keeps no id order.
+     * A page next to a known part costs O(n log limit); one found by offset costs O(n log (offset + limit)).
+     */
+    @Override
+    public List<Part> pageParts(int offset, int limit, Part after, Part before) {
+        return page(Inventory::forEachPart, Part::getId, offset, limit,
+                after != null ? after.getId() : null, before != null ? before.getId() : null);
+    }
+
+    /**
+     * Walks the products once, keeping only the page in a bounded heap, as pageParts does.
+     */
+    @Override
+    public List<Product> pageProducts(int offset, int limit, Product after, Product before) {
+        return page(Inventory::forEachProduct, Product::getId, offset, limit,
+                after != null ? after.getId() : null, before != null ? before.getId() : null);
+    }
+
+    @Override
+    public void addPart(Part part) {
+        Inventory.addPart(part);
+    }
+
+    @Override
+    public void addParts(Collection<? extends Part> parts) {
+        Inventory.addParts(parts);
+    }
+
+    @Override
+    public void addProduct(Product product) {
+        Inventory.addProduct(product);
+    }
+
+    @Override
+    public void addProducts(Collection<? extends Product> products) {
+        Inventory.addProducts(products);
+    }
+
+    @Override
+    public boolean updatePart(Part part) {
+        return Inventory.updatePart(part);
+    }
+
+    @Override
+    public int updateParts(Collection<? extends Part> parts) {
+        return Inventory.updateParts(parts);
+    }
+
+    @Override
+    public boolean updateProduct(Product product) {
+        return Inventory.updateProduct(product);
+    }
+
+    @Override
+    public boolean deletePart(int id) {
+        Part part = Inventory.lookupPart(id);
+        return part != null && Inventory.deletePart(part);
+    }
+
+    @Override
+    public boolean deleteProduct(int id) {
+        Product product = Inventory.lookupProduct(id);
+        return product != null && Inventory.deleteProduct(product);
+    }
+
+    @Override
+    public int getPartCount() {
+        return Inventory.getPartCount();
+    }
+
+    @Override
+    public int getProductCount() {
+        return Inventory.getProductCount();
+    }
+
+    /**
+     * Does nothing, since Inventory lives for the whole application.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Cuts a page in id order out of items visited in no order.
+     * The items after a known id are the smallest ids above it, and those before one the largest
+     * ids below it, so only limit items are kept. Without either, the first offset + limit items
+     * are kept and the first offset dropped.
+     * @param forEach Visits every item.
+     * @param idOf    Reads an item's id.
+     * @param offset  The position of the first item, used when neither neighbour is known.
+     * @param limit   The largest number of items to return.
+     * @param after   The id just before the page, or null.
+     * @param before  The id just after the page, or null.
+     * @param <E>     The type of item.
+     * @return The page, in id order.
+     */
+    private static <E> List<E> page(Consumer<Consumer<E>> forEach, ToIntFunction<E> idOf,
+                                    int offset, int limit, Integer after, Integer before) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<E> byId = Comparator.comparingInt(idOf);
+        boolean backwards = after == null && before != null;
+        int keep = after != null || before != null ? limit : (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        PriorityQueue<E> heap = new PriorityQueue<>(backwards ? byId : byId.reversed());
+        forEach.accept(item -> {
+            int id = idOf.applyAsInt(item);
+            if ((after != null && id <= after) || (backwards && id >= before)) {
+                return;
+            }
+            if (heap.size() < keep) {
+                heap.add(item);
+            } else if (backwards ? id > idOf.applyAsInt(heap.peek()) : id < idOf.applyAsInt(heap.peek())) {
+                heap.poll();
+                heap.add(item);
+            }
+        });
+        List<E> items = new ArrayList<>(heap);
+        items.sort(byId);
+        if (after != null || before != null) {
+            return items;
+        }
+        int from = Math.min(offset, items.size());
+        return new ArrayList<>(items.subList(from, items.size()));
+    }
+}
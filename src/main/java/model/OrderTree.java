@@ -0,0 +1,279 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * The OrderTree class keeps elements sorted by a key and then by id in an AVL tree whose nodes
+ * also count the nodes below them, so an element can be inserted, removed, found by position
+ * or have its position found in O(log n).
+ * Each node keeps the key its element had when it was inserted, so the tree stays ordered
+ * even if an element's key is later changed in place.
+ * @param <E> The type of element in the tree.
+ */
+final class OrderTree<E> {
+
+    private final Function<? super E, ? extends Comparable<?>> keyOf;
+    private final ToIntFunction<? super E> idOf;
+    private Node<E> root;
+
+    /**
+     * Creates a tree holding a collection of elements.
+     * The elements are sorted once and the tree is built balanced from the sorted array.
+     * @param keyOf    The function that reads an element's key.
+     * @param idOf     The function that reads an element's unique id.
+     * @param elements The elements to start with.
+     */
+    OrderTree(Function<? super E, ? extends Comparable<?>> keyOf, ToIntFunction<? super E> idOf,
+              Collection<? extends E> elements) {
+        this.keyOf = keyOf;
+        this.idOf = idOf;
+        @SuppressWarnings("unchecked")
+        Node<E>[] nodes = new Node[elements.size()];
+        int i = 0;
+        for (E element : elements) {
+            nodes[i++] = node(element);
+        }
+        Arrays.sort(nodes, OrderTree::compare);
+        root = build(nodes, 0, nodes.length);
+    }
+
+    /**
+     * Retrieves the number of elements.
+     * @return The size of the tree.
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Retrieves the element at a position in key order.
+     * @param index The position.
+     * @return The element.
+     */
+    E get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range for size " + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.element;
+            }
+        }
+    }
+
+    /**
+     * Finds the position of an element.
+     * @param element The element.
+     * @return The position in key order, or -1 if the element is not in the tree.
+     */
+    int rank(E element) {
+        Node<E> probe = node(element);
+        Node<E> node = root;
+        int rank = 0;
+        while (node != null) {
+            int c = compare(probe, node);
+            if (c < 0) {
+                node = node.left;
+            } else if (c > 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return rank + size(node.left);
+            }
+        }
+        return scan(element);
+    }
+
+    /**
+     * Adds an element.
+     * @param element The element to add.
+     * @return The position it was added at.
+     */
+    int insert(E element) {
+        Node<E> node = node(element);
+        root = insert(root, node);
+        return rank(element);
+    }
+
+    /**
+     * Removes an element.
+     * The element is found by the key it has now, or by a full scan if that key has changed
+     * since it was inserted.
+     * @param element The element to remove.
+     * @return The position it was removed from, or -1 if it was not in the tree.
+     */
+    int remove(E element) {
+        int rank = rank(element);
+        if (rank >= 0) {
+            root = removeAt(root, rank);
+        }
+        return rank;
+    }
+
+    /**
+     * Finds an element by identity, walking the whole tree in order.
+     * @param element The element.
+     * @return Its position, or -1 if the element is not in the tree.
+     */
+    private int scan(E element) {
+        for (int i = 0; i < size(); i++) {
+            if (get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Node<E> node(E element) {
+        return new Node<>(element, keyOf.apply(element), idOf.applyAsInt(element));
+    }
+
+    private static <E> Node<E> build(Node<E>[] nodes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node<E> node = nodes[middle];
+        node.left = build(nodes, from, middle);
+        node.right = build(nodes, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    private static <E> Node<E> insert(Node<E> node, Node<E> inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (compare(inserted, node) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        return balance(node);
+    }
+
+    private static <E> Node<E> removeAt(Node<E> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            node.left = removeAt(node.left, index);
+        } else if (index > leftSize) {
+            node.right = removeAt(node.right, index - leftSize - 1);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node<E> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeAt(node.right, 0);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private static <E> Node<E> balance(Node<E> node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static <E> Node<E> rotateRight(Node<E> node) {
+        Node<E> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static <E> Node<E> rotateLeft(Node<E> node) {
+        Node<E> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node<?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Orders nodes by key, with null keys first, and then by id.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Node<?> a, Node<?> b) {
+        if (a.key != b.key) {
+            if (a.key == null) {
+                return -1;
+            }
+            if (b.key == null) {
+                return 1;
+            }
+            int c = ((Comparable) a.key).compareTo(b.key);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.id, b.id);
+    }
+
+    /**
+     * The Node class is one element of the tree with the key and id it is ordered by.
+     * @param <E> The type of element.
+     */
+    private static final class Node<E> {
+        private final E element;
+        private final Comparable<?> key;
+        private final int id;
+        private Node<E> left;
+        private Node<E> right;
+        private int height;
+        private int size;
+
+        Node(E element, Comparable<?> key, int id) {
+            this.element = element;
+            this.key = key;
+            this.id = id;
+            this.height = 1;
+            this.size = 1;
+        }
+    }
+}
@@ -3,14 +3,15 @@ package model;
 /**
  * The Outsourced class represents an outsourced part in the inventory.
  * It extends the Part class.
+ * The company name is stored as a SupplierDictionary code.
  */
 public class Outsourced extends Part {
 
-    private String companyName;
+    private int companyCode;
 
     public Outsourced(int id, String name, double price, int stock, int min, int max, String companyName){
         super(id, name, price, stock, min, max);
-        this.companyName = companyName;
+        this.companyCode = SupplierDictionary.encode(companyName);
     }
 
     /**
@@ -18,7 +19,7 @@ public class Outsourced extends Part {
      * @return The company name.
      */
     public String getCompanyName() {
-        return companyName;
+        return SupplierDictionary.decode(getCompanyCode());
     }
 
     /**
@@ -26,6 +27,22 @@ public class Outsourced extends Part {
      * @param companyName The company name to set.
      */
     public void setCompanyName(String companyName) {
-        this.companyName = companyName;
+        setCompanyCode(SupplierDictionary.encode(companyName));
+    }
+
+    /**
+     * Retrieves the supplier code of the company associated with the outsourced part.
+     * @return The SupplierDictionary code of the company.
+     */
+    public int getCompanyCode() {
+        return companyCode;
+    }
+
+    /**
+     * Sets the supplier code of the company associated with the outsourced part.
+     * @param companyCode The SupplierDictionary code to set.
+     */
+    public void setCompanyCode(int companyCode) {
+        this.companyCode = companyCode;
     }
 }
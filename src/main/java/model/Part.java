@@ -1,24 +1,49 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+
 /**
  * Supplied class Part.java
 */
 
  /**
  * @author Jakob Berentsen
+ *
+ * The stock level and the number of units reserved from it are packed into one long, so that
+ * reserve, release, consume and receive can each change both with a single compare-and-set.
+ * Concurrent pickers retry against the part itself instead of waiting on a shared lock.
  */
 public class Part {
+
+    /**
+     * Returned by a stock change to leave the stock as it is and report failure.
+     * A packed state never has a negative reserved count, so this value cannot be a real state.
+     */
+    static final long REJECTED = -1L;
+
+    private static final VarHandle STOCK_STATE;
+
+    static {
+        try {
+            STOCK_STATE = MethodHandles.lookup().findVarHandle(Part.class, "stockState", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private int id;
     private String name;
     private double price;
-    private int stock;
+    private long stockState;
     private int min;
     private int max;
     public Part(int id, String name, double price, int stock, int min, int max) {
         this.id = id;
         this.name = name;
         this.price = price;
-        this.stock = stock;
+        this.stockState = pack(stock, 0);
         this.min = min;
         this.max = max;
     }
@@ -59,9 +84,11 @@ public class Part {
     }
 
     /**
+     * Sets the price in place. Inventory's indexes are not told, so this is only for parts that
+     * are not in the inventory yet; a stocked part's price is changed with Inventory.updatePart.
      * @param price the price to set
      */
-    public void setPrice(double price) {
+    void setPrice(double price) {
         this.price = price;
     }
 
@@ -69,14 +96,116 @@ public class Part {
      * @return the stock
      */
     public int getStock() {
-        return stock;
+        return stockOf(stockState());
     }
 
     /**
+     * Sets the stock level directly, keeping any reservations.
+     * Unlike the stock operations below, this does not check the bounds, but the change is
+     * reported to Inventory's listeners like theirs.
      * @param stock the stock to set
      */
     public void setStock(int stock) {
-        this.stock = stock;
+        Inventory.changeStock(this, state -> pack(stock, reservedOf(state)));
+    }
+
+    /**
+     * Retrieves the number of units reserved but not yet consumed.
+     * @return The reserved units.
+     */
+    public int getReserved() {
+        return reservedOf(stockState());
+    }
+
+    /**
+     * Retrieves the number of units in stock that are not reserved.
+     * @return The stock level less the reserved units.
+     */
+    public int getAvailable() {
+        long state = stockState();
+        return stockOf(state) - reservedOf(state);
+    }
+
+    /**
+     * Reserves units of stock for a later consume.
+     * The reservation is refused if the unreserved stock would fall below the minimum.
+     * @param quantity The number of units to reserve.
+     * @return True if the units were reserved, false otherwise.
+     */
+    public boolean reserve(int quantity) {
+        checkQuantity(quantity);
+        return Inventory.changeStock(this, state -> {
+            int stock = stockOf(state);
+            int reserved = reservedOf(state);
+            if ((long) stock - reserved - quantity < getMin()) {
+                return REJECTED;
+            }
+            return pack(stock, reserved + quantity);
+        });
+    }
+
+    /**
+     * Returns reserved units to the unreserved stock.
+     * @param quantity The number of units to release.
+     * @return True if the units were released, false if fewer than that were reserved.
+     */
+    public boolean release(int quantity) {
+        checkQuantity(quantity);
+        return Inventory.changeStock(this, state -> {
+            int reserved = reservedOf(state);
+            if (reserved < quantity) {
+                return REJECTED;
+            }
+            return pack(stockOf(state), reserved - quantity);
+        });
+    }
+
+    /**
+     * Takes reserved units out of stock.
+     * @param quantity The number of reserved units to take.
+     * @return True if the units were taken, false if fewer than that were reserved or
+     *         the stock would fall below the minimum.
+     */
+    public boolean consume(int quantity) {
+        checkQuantity(quantity);
+        return Inventory.changeStock(this, state -> {
+            int stock = stockOf(state);
+            int reserved = reservedOf(state);
+            if (reserved < quantity || stock - quantity < getMin()) {
+                return REJECTED;
+            }
+            return pack(stock - quantity, reserved - quantity);
+        });
+    }
+
+    /**
+     * Adds units to stock.
+     * @param quantity The number of units received.
+     * @return True if the units were added, false if the stock would rise above the maximum.
+     */
+    public boolean receive(int quantity) {
+        checkQuantity(quantity);
+        return Inventory.changeStock(this, state -> {
+            int stock = stockOf(state);
+            if ((long) stock + quantity > getMax()) {
+                return REJECTED;
+            }
+            return pack(stock + quantity, reservedOf(state));
+        });
+    }
+
+    /**
+     * Reserves units of stock for a limited time.
+     * The hold is released automatically if it is neither consumed nor released before it expires.
+     * @param quantity   The number of units to hold.
+     * @param timeToLive How long the hold lasts.
+     * @return The hold, or null if the units could not be reserved.
+     */
+    public StockHold hold(int quantity, Duration timeToLive) {
+        if (!reserve(quantity)) {
+            return null;
+        }
+        return new StockHold(this, quantity, timeToLive);
     }
 
     /**
@@ -87,9 +216,11 @@ public class Part {
     }
 
     /**
+     * Sets the minimum in place. Like setPrice, this is only for parts that are not in the
+     * inventory yet; a stocked part's minimum is changed with Inventory.updatePart.
      * @param min the min to set
      */
-    public void setMin(int min) {
+    void setMin(int min) {
         this.min = min;
     }
 
@@ -107,4 +238,56 @@ public class Part {
         this.max = max;
     }
 
+    /**
+     * Reads the packed stock state.
+     * Column store views override this and compareAndSetStockState to keep the state in a column.
+     * @return The stock level in the high half and the reserved units in the low half.
+     */
+    long stockState() {
+        return (long) STOCK_STATE.getVolatile(this);
+    }
+
+    /**
+     * Replaces the packed stock state if it still holds the expected value.
+     * @param expected The state the caller read.
+     * @param next     The state to store.
+     * @return True if the state was replaced, false if another thread changed it first.
+     */
+    boolean compareAndSetStockState(long expected, long next) {
+        return STOCK_STATE.compareAndSet(this, expected, next);
+    }
+
+    /**
+     * Packs a stock level and a reserved count into one state.
+     * @param stock    The stock level.
+     * @param reserved The reserved units.
+     * @return The packed state.
+     */
+    static long pack(int stock, int reserved) {
+        return ((long) stock << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Unpacks the stock level from a state.
+     * @param state The packed state.
+     * @return The stock level.
+     */
+    static int stockOf(long state) {
+        return (int) (state >> 32);
+    }
+
+    /**
+     * Unpacks the reserved count from a state.
+     * @param state The packed state.
+     * @return The reserved units.
+     */
+    static int reservedOf(long state) {
+        return (int) state;
+    }
+
+    private static void checkQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+    }
 }
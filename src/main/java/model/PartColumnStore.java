@@ -0,0 +1,616 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The PartColumnStore class keeps parts in parallel primitive arrays, one array per field,
+ * instead of one heap object per part.
+ * Names are dictionary-encoded, so each distinct name is stored once, and Outsourced
+ * company names are kept as SupplierDictionary codes.
+ * Every record lives in a slot that does not move. The store keeps two things apart: the
+ * records, found by id, which Inventory changes under its index lock with store and unstore;
+ * and the list order, an array of slots that ColumnarPartList changes on the JavaFX
+ * application thread with insert, replace and remove. A record can therefore be in the
+ * inventory before its row is shown, and stay readable in its row after it has been unstored
+ * until the row is removed. Its slot is reused only once it is neither stored nor listed.
+ * Inserting or removing a row shifts plain ints rather than records.
+ * Callers see each record through a small flyweight view that extends InHouse, Outsourced or Part.
+ * Views are created on demand, read and write the columns directly, and are equal when they
+ * refer to the same slot.
+ * A view of a record whose slot has been reused throws IllegalStateException when it is used.
+ * The store's methods are synchronized. Views read and write the columns without locking,
+ * so a view may see a value that is being changed by another thread. The exception is a stock
+ * operation's compare-and-set, which takes the store's lock so that no update is lost.
+ */
+public class PartColumnStore {
+
+    private static final byte PLAIN = 0;
+    private static final byte IN_HOUSE = 1;
+    private static final byte OUTSOURCED = 2;
+
+    private final StringDictionary names = new StringDictionary();
+    private final IntIntMap slotsById = new IntIntMap();
+
+    private int[] ids;
+    private long[] stockStates;
+    private int[] mins;
+    private int[] maxs;
+    private double[] prices;
+    private int[] nameCodes;
+    private int[] details;
+    private byte[] kinds;
+    private int[] generations;
+    private boolean[] stored;
+    private boolean[] listed;
+    private int slotCount;
+    private int recordCount;
+
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private int[] order;
+    private int size;
+
+    /**
+     * Creates an empty store.
+     */
+    public PartColumnStore() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty store sized for the expected number of parts.
+     * @param capacity The number of parts the columns should hold before growing.
+     */
+    public PartColumnStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        ids = new int[capacity];
+        stockStates = new long[capacity];
+        mins = new int[capacity];
+        maxs = new int[capacity];
+        prices = new double[capacity];
+        nameCodes = new int[capacity];
+        details = new int[capacity];
+        kinds = new byte[capacity];
+        generations = new int[capacity];
+        stored = new boolean[capacity];
+        listed = new boolean[capacity];
+        order = new int[capacity];
+    }
+
+    /**
+     * Retrieves the number of parts in the inventory.
+     * @return The number of stored records.
+     */
+    public synchronized int recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Copies a part's values, including its reserved units, into a new record and indexes it by id.
+     * The record is not in the list order until it is inserted.
+     * @param part The part to store.
+     * @return A view of the new record.
+     */
+    public synchronized Part store(Part part) {
+        int slot = allocateSlot();
+        write(slot, part);
+        stored[slot] = true;
+        recordCount++;
+        return view(slot);
+    }
+
+    /**
+     * Takes the record with a part's id out of the inventory. Its views stay readable until
+     * its row is removed from the list order.
+     * @param part The part to unstore.
+     * @return True if a record was unstored, false if none has the part's id.
+     */
+    public synchronized boolean unstore(Part part) {
+        int slot = slotsById.get(part.getId(), -1);
+        if (slot < 0) {
+            return false;
+        }
+        slotsById.remove(part.getId(), slot);
+        stored[slot] = false;
+        recordCount--;
+        releaseIfUnused(slot);
+        return true;
+    }
+
+    /**
+     * Retrieves the number of rows in the list order.
+     * @return The number of rows.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves a view of the part at a list position.
+     * @param position The list position.
+     * @return A flyweight view of the part.
+     */
+    public synchronized Part get(int position) {
+        return view(order[checkPosition(position)]);
+    }
+
+    /**
+     * Inserts a stored record's row at a list position.
+     * @param position The list position to insert at.
+     * @param part     A view returned by store.
+     */
+    public synchronized void insert(int position, Part part) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of range for size " + size);
+        }
+        int slot = slotOf(part);
+        if (size == order.length) {
+            order = Arrays.copyOf(order, size << 1);
+        }
+        System.arraycopy(order, position, order, position + 1, size - position);
+        order[position] = slot;
+        listed[slot] = true;
+        size++;
+    }
+
+    /**
+     * Shows another stored record's row at a list position in place of the current one.
+     * @param position The list position to change.
+     * @param part     A view returned by store.
+     * @return A detached copy of the record that was shown.
+     */
+    public synchronized Part replace(int position, Part part) {
+        int newSlot = slotOf(part);
+        int slot = order[checkPosition(position)];
+        Part replaced = detach(slot);
+        order[position] = newSlot;
+        listed[newSlot] = true;
+        unlist(slot);
+        return replaced;
+    }
+
+    /**
+     * Removes the row at a list position.
+     * @param position The list position to remove.
+     * @return A detached copy of the removed part.
+     */
+    public synchronized Part remove(int position) {
+        int slot = order[checkPosition(position)];
+        Part removed = detach(slot);
+        System.arraycopy(order, position + 1, order, position, size - position - 1);
+        size--;
+        unlist(slot);
+        return removed;
+    }
+
+    /**
+     * Removes the rows at several list positions, shifting the order array once.
+     * @param positions The list positions to remove.
+     * @return Detached copies of the removed parts, in position order.
+     */
+    public synchronized List<Part> removeAll(BitSet positions) {
+        List<Part> removed = new ArrayList<>(positions.cardinality());
+        int kept = 0;
+        for (int position = 0; position < size; position++) {
+            int slot = order[position];
+            if (!positions.get(position)) {
+                order[kept++] = slot;
+                continue;
+            }
+            removed.add(detach(slot));
+            unlist(slot);
+        }
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Finds the list position of a view.
+     * Only views handed out by this store can be found; other Part objects are never equal to a stored record.
+     * @param o The object to find.
+     * @return The list position, or -1 if the object is not a live view of this store.
+     */
+    public synchronized int positionOf(Object o) {
+        if (!(o instanceof ColumnView)) {
+            return -1;
+        }
+        ColumnView view = (ColumnView) o;
+        if (view.store() != this || generations[view.slot()] != view.generation()) {
+            return -1;
+        }
+        int slot = view.slot();
+        for (int position = 0; position < size; position++) {
+            if (order[position] == slot) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a part by id.
+     * @param id The id of the part.
+     * @return A view of the part, or null if no part has the id.
+     */
+    public synchronized Part findById(int id) {
+        int slot = slotsById.get(id, -1);
+        return slot < 0 ? null : view(slot);
+    }
+
+    /**
+     * Checks whether a part is a view of a record that is still stored.
+     * A view whose record was replaced or deleted is not, even while its row is still listed.
+     * @param part The part to check.
+     * @return True if the part's record is in the inventory, false otherwise.
+     */
+    public synchronized boolean isStored(Part part) {
+        if (!(part instanceof ColumnView)) {
+            return false;
+        }
+        ColumnView view = (ColumnView) part;
+        int slot = view.slot();
+        return view.store() == this && generations[slot] == view.generation() && stored[slot];
+    }
+
+    /**
+     * Reads a part's id without failing on a view whose record has been deleted.
+     * @param part The part, which need not belong to this store.
+     * @return The part's id, or -1 if the part is a view of a deleted record.
+     */
+    public synchronized int idOf(Part part) {
+        if (part instanceof ColumnView) {
+            ColumnView view = (ColumnView) part;
+            if (view.store() == this && generations[view.slot()] != view.generation()) {
+                return -1;
+            }
+        }
+        return part.getId();
+    }
+
+    /**
+     * Retrieves the number of slots, stored or not, so callers can walk the records with recordAt.
+     * @return The number of slots.
+     */
+    public synchronized int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Retrieves a view of the record in a slot, if the slot holds a stored record.
+     * Lets a caller walk the records without holding the store's lock.
+     * @param slot The slot.
+     * @return A flyweight view of the part, or null if the slot holds no stored record.
+     */
+    public synchronized Part recordAt(int slot) {
+        return slot >= 0 && slot < slotCount && stored[slot] ? view(slot) : null;
+    }
+
+    /**
+     * Collects every stored part, in slot order.
+     * @param results The list the views are added to.
+     */
+    public synchronized void collectAll(List<? super Part> results) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (stored[slot]) {
+                results.add(view(slot));
+            }
+        }
+    }
+
+    /**
+     * Collects every stored part whose name contains the search term, in slot order.
+     * Each distinct name is tested once, then the name column is scanned for matching codes.
+     * @param term    The substring to search for. Matching is case-sensitive.
+     * @param results The list the matching views are added to.
+     */
+    public synchronized void collectNameContaining(String term, List<? super Part> results) {
+        boolean[] matches = new boolean[names.size()];
+        for (int code = 0; code < matches.length; code++) {
+            matches[code] = names.decode(code).contains(term);
+        }
+        collectMatchingNames(matches, results);
+    }
+
+    /**
+     * Collects every stored part whose name starts with the prefix, ignoring case, in slot order.
+     * @param prefix  The prefix to search for.
+     * @param results The list the matching views are added to.
+     */
+    public synchronized void collectNamePrefix(String prefix, List<? super Part> results) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        boolean[] matches = new boolean[names.size()];
+        for (int code = 0; code < matches.length; code++) {
+            matches[code] = names.decode(code).regionMatches(true, 0, key, 0, key.length());
+        }
+        collectMatchingNames(matches, results);
+    }
+
+    /**
+     * Collects every stored outsourced part from a supplier, in slot order.
+     * @param companyCode The SupplierDictionary code of the supplier.
+     * @param results     The list the matching views are added to.
+     */
+    public synchronized void collectBySupplier(int companyCode, List<? super Part> results) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (stored[slot] && kinds[slot] == OUTSOURCED && details[slot] == companyCode) {
+                results.add(view(slot));
+            }
+        }
+    }
+
+    private void collectMatchingNames(boolean[] matches, List<? super Part> results) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (stored[slot] && matches[nameCodes[slot]]) {
+                results.add(view(slot));
+            }
+        }
+    }
+
+    private int checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of range for size " + size);
+        }
+        return position;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == ids.length) {
+            int capacity = slotCount << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            stockStates = Arrays.copyOf(stockStates, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            details = Arrays.copyOf(details, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+            stored = Arrays.copyOf(stored, capacity);
+            listed = Arrays.copyOf(listed, capacity);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Finds the slot of a view of a stored or listed record.
+     * @param part The view.
+     * @return The slot.
+     * @throws IllegalArgumentException If the part is not a live view of this store.
+     */
+    private int slotOf(Part part) {
+        if (part instanceof ColumnView) {
+            ColumnView view = (ColumnView) part;
+            if (view.store() == this && generations[view.slot()] == view.generation()) {
+                return view.slot();
+            }
+        }
+        throw new IllegalArgumentException("Only parts returned by store can be listed.");
+    }
+
+    private void unlist(int slot) {
+        listed[slot] = false;
+        releaseIfUnused(slot);
+    }
+
+    /**
+     * Frees a slot for reuse once its record is neither stored nor listed.
+     * Views of it become invalid.
+     * @param slot The slot.
+     */
+    private void releaseIfUnused(int slot) {
+        if (stored[slot] || listed[slot]) {
+            return;
+        }
+        generations[slot]++;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void write(int slot, Part part) {
+        ids[slot] = part.getId();
+        stockStates[slot] = part.stockState();
+        mins[slot] = part.getMin();
+        maxs[slot] = part.getMax();
+        prices[slot] = part.getPrice();
+        nameCodes[slot] = names.encode(part.getName());
+        if (part instanceof InHouse) {
+            kinds[slot] = IN_HOUSE;
+            details[slot] = ((InHouse) part).getMachineId();
+        } else if (part instanceof Outsourced) {
+            kinds[slot] = OUTSOURCED;
+            details[slot] = ((Outsourced) part).getCompanyCode();
+        } else {
+            kinds[slot] = PLAIN;
+            details[slot] = 0;
+        }
+        slotsById.put(part.getId(), slot);
+    }
+
+    private Part detach(int slot) {
+        String name = names.decode(nameCodes[slot]);
+        switch (kinds[slot]) {
+            case IN_HOUSE:
+                return new InHouse(ids[slot], name, prices[slot], Part.stockOf(stockStates[slot]), mins[slot], maxs[slot], details[slot]);
+            case OUTSOURCED:
+                return new Outsourced(ids[slot], name, prices[slot], Part.stockOf(stockStates[slot]), mins[slot], maxs[slot],
+                        SupplierDictionary.decode(details[slot]));
+            default:
+                return new Part(ids[slot], name, prices[slot], Part.stockOf(stockStates[slot]), mins[slot], maxs[slot]);
+        }
+    }
+
+    private Part view(int slot) {
+        switch (kinds[slot]) {
+            case IN_HOUSE:
+                return new InHouseView(slot, generations[slot]);
+            case OUTSOURCED:
+                return new OutsourcedView(slot, generations[slot]);
+            default:
+                return new PartView(slot, generations[slot]);
+        }
+    }
+
+    private int live(int slot, int generation) {
+        if (generations[slot] != generation) {
+            throw new IllegalStateException("The part this view refers to has been deleted.");
+        }
+        return slot;
+    }
+
+    /**
+     * Replaces a slot's packed stock state if it still holds the expected value.
+     * The columns are reallocated as the store grows, so this holds the store's lock rather
+     * than using an atomic update on an array that may be about to be replaced.
+     * @param slot     The slot to change.
+     * @param expected The state the caller read.
+     * @param next     The state to store.
+     * @return True if the state was replaced, false otherwise.
+     */
+    private synchronized boolean casStockState(int slot, long expected, long next) {
+        if (stockStates[slot] != expected) {
+            return false;
+        }
+        stockStates[slot] = next;
+        return true;
+    }
+
+    private synchronized void changeId(int slot, int id) {
+        if (stored[slot]) {
+            slotsById.remove(ids[slot], slot);
+            slotsById.put(id, slot);
+        }
+        ids[slot] = id;
+    }
+
+    /**
+     * Identifies the slot a view refers to.
+     */
+    private interface ColumnView {
+        PartColumnStore store();
+        int slot();
+        int generation();
+    }
+
+    /**
+     * A view of a record that is neither InHouse nor Outsourced.
+     */
+    private final class PartView extends Part implements ColumnView {
+        private final int slot;
+        private final int generation;
+
+        PartView(int slot, int generation) {
+            super(0, null, 0, 0, 0, 0);
+            this.slot = slot;
+            this.generation = generation;
+        }
+
+        @Override public PartColumnStore store() { return PartColumnStore.this; }
+        @Override public int slot() { return slot; }
+        @Override public int generation() { return generation; }
+        @Override public int getId() { return ids[live(slot, generation)]; }
+        @Override public void setId(int id) { changeId(live(slot, generation), id); }
+        @Override public String getName() { return names.decode(nameCodes[live(slot, generation)]); }
+        @Override public void setName(String name) { nameCodes[live(slot, generation)] = names.encode(name); }
+        @Override public double getPrice() { return prices[live(slot, generation)]; }
+        @Override void setPrice(double price) { prices[live(slot, generation)] = price; }
+        @Override long stockState() { return stockStates[live(slot, generation)]; }
+        @Override boolean compareAndSetStockState(long expected, long next) { return casStockState(live(slot, generation), expected, next); }
+        @Override public int getMin() { return mins[live(slot, generation)]; }
+        @Override void setMin(int min) { mins[live(slot, generation)] = min; }
+        @Override public int getMax() { return maxs[live(slot, generation)]; }
+        @Override public void setMax(int max) { maxs[live(slot, generation)] = max; }
+        @Override public boolean equals(Object o) { return sameSlot(this, o); }
+        @Override public int hashCode() { return slotHash(this); }
+    }
+
+    /**
+     * A view of an InHouse record. The machine id is kept in the details column.
+     */
+    private final class InHouseView extends InHouse implements ColumnView {
+        private final int slot;
+        private final int generation;
+
+        InHouseView(int slot, int generation) {
+            super(0, null, 0, 0, 0, 0, 0);
+            this.slot = slot;
+            this.generation = generation;
+        }
+
+        @Override public PartColumnStore store() { return PartColumnStore.this; }
+        @Override public int slot() { return slot; }
+        @Override public int generation() { return generation; }
+        @Override public int getId() { return ids[live(slot, generation)]; }
+        @Override public void setId(int id) { changeId(live(slot, generation), id); }
+        @Override public String getName() { return names.decode(nameCodes[live(slot, generation)]); }
+        @Override public void setName(String name) { nameCodes[live(slot, generation)] = names.encode(name); }
+        @Override public double getPrice() { return prices[live(slot, generation)]; }
+        @Override void setPrice(double price) { prices[live(slot, generation)] = price; }
+        @Override long stockState() { return stockStates[live(slot, generation)]; }
+        @Override boolean compareAndSetStockState(long expected, long next) { return casStockState(live(slot, generation), expected, next); }
+        @Override public int getMin() { return mins[live(slot, generation)]; }
+        @Override void setMin(int min) { mins[live(slot, generation)] = min; }
+        @Override public int getMax() { return maxs[live(slot, generation)]; }
+        @Override public void setMax(int max) { maxs[live(slot, generation)] = max; }
+        @Override public int getMachineId() { return details[live(slot, generation)]; }
+        @Override public void setMachineId(int machineId) { details[live(slot, generation)] = machineId; }
+        @Override public boolean equals(Object o) { return sameSlot(this, o); }
+        @Override public int hashCode() { return slotHash(this); }
+    }
+
+    /**
+     * A view of an Outsourced record. The supplier code is kept in the details column.
+     * The company name getter and setter go through the code accessors, so only those are overridden.
+     */
+    private final class OutsourcedView extends Outsourced implements ColumnView {
+        private final int slot;
+        private final int generation;
+
+        OutsourcedView(int slot, int generation) {
+            super(0, null, 0, 0, 0, 0, null);
+            this.slot = slot;
+            this.generation = generation;
+        }
+
+        @Override public PartColumnStore store() { return PartColumnStore.this; }
+        @Override public int slot() { return slot; }
+        @Override public int generation() { return generation; }
+        @Override public int getId() { return ids[live(slot, generation)]; }
+        @Override public void setId(int id) { changeId(live(slot, generation), id); }
+        @Override public String getName() { return names.decode(nameCodes[live(slot, generation)]); }
+        @Override public void setName(String name) { nameCodes[live(slot, generation)] = names.encode(name); }
+        @Override public double getPrice() { return prices[live(slot, generation)]; }
+        @Override void setPrice(double price) { prices[live(slot, generation)] = price; }
+        @Override long stockState() { return stockStates[live(slot, generation)]; }
+        @Override boolean compareAndSetStockState(long expected, long next) { return casStockState(live(slot, generation), expected, next); }
+        @Override public int getMin() { return mins[live(slot, generation)]; }
+        @Override void setMin(int min) { mins[live(slot, generation)] = min; }
+        @Override public int getMax() { return maxs[live(slot, generation)]; }
+        @Override public void setMax(int max) { maxs[live(slot, generation)] = max; }
+        @Override public int getCompanyCode() { return details[live(slot, generation)]; }
+        @Override public void setCompanyCode(int companyCode) { details[live(slot, generation)] = companyCode; }
+        @Override public boolean equals(Object o) { return sameSlot(this, o); }
+        @Override public int hashCode() { return slotHash(this); }
+    }
+
+    private static boolean sameSlot(ColumnView view, Object o) {
+        if (!(o instanceof ColumnView)) {
+            return false;
+        }
+        ColumnView other = (ColumnView) o;
+        return other.store() == view.store() && other.slot() == view.slot() && other.generation() == view.generation();
+    }
+
+    private static int slotHash(ColumnView view) {
+        return 31 * view.slot() + view.generation();
+    }
+}
@@ -0,0 +1,122 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * The PrefixIndex class keeps items ordered by their lower-cased name so that
+ * case-insensitive prefix searches only visit the matching range.
+ * @param <T> The type of item being indexed.
+ */
+public class PrefixIndex<T> {
+
+    private final Function<T, String> nameOf;
+    private final TreeMap<String, List<T>> byName = new TreeMap<>();
+    private final Map<T, String> indexedNames = new IdentityHashMap<>();
+
+    /**
+     * Creates an empty prefix index.
+     * @param nameOf The function that reads the name of an item.
+     */
+    public PrefixIndex(Function<T, String> nameOf) {
+        this.nameOf = nameOf;
+    }
+
+    /**
+     * Normalizes a name or search term the same way the index does.
+     * @param text The text to normalize.
+     * @return The lower-cased text.
+     */
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds an item to the index under its current name.
+     * @param item The item to add.
+     */
+    public void add(T item) {
+        String key = normalize(nameOf.apply(item));
+        indexedNames.put(item, key);
+        byName.computeIfAbsent(key, k -> new ArrayList<>(1)).add(item);
+    }
+
+    /**
+     * Removes an item from the index.
+     * The item is found under the name it was indexed with, even if it has since been renamed.
+     * @param item The item to remove.
+     * @return True if the item was indexed, false otherwise.
+     */
+    public boolean remove(T item) {
+        String key = indexedNames.remove(item);
+        if (key == null) {
+            return false;
+        }
+        List<T> sameName = byName.get(key);
+        for (int i = 0; i < sameName.size(); i++) {
+            if (sameName.get(i) == item) {
+                sameName.remove(i);
+                break;
+            }
+        }
+        if (sameName.isEmpty()) {
+            byName.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces one item with another.
+     * @param oldItem The item to remove.
+     * @param newItem The item to add.
+     */
+    public void replace(T oldItem, T newItem) {
+        remove(oldItem);
+        add(newItem);
+    }
+
+    /**
+     * Collects every item whose name starts with the given prefix, ignoring case.
+     * The results are ordered by name.
+     * @param prefix The prefix to search for.
+     * @param results The list the matching items are added to.
+     */
+    public void collect(String prefix, List<? super T> results) {
+        String key = normalize(prefix);
+        for (Map.Entry<String, List<T>> entry : byName.tailMap(key, true).entrySet()) {
+            if (!entry.getKey().startsWith(key)) {
+                break;
+            }
+            results.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Collects every item whose name contains the search term, matching case as String.contains does.
+     * The items are checked where they are held, without copying the index first.
+     * @param term    The substring to search for.
+     * @param results The list the matching items are added to, ordered by name.
+     */
+    public void collectContaining(String term, List<? super T> results) {
+        for (List<T> sameName : byName.values()) {
+            for (T item : sameName) {
+                if (nameOf.apply(item).contains(term)) {
+                    results.add(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of items in the index.
+     * @return The number of indexed items.
+     */
+    public int size() {
+        return indexedNames.size();
+    }
+}
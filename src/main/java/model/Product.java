@@ -36,7 +36,7 @@ public class Product {
      * @param associatedParts The list of associated parts to set.
      */
     public void setAssociatedParts(ObservableList<Part> associatedParts) {
-        this.associatedParts = associatedParts;
+        Inventory.associatedPartsRelinked(this, () -> this.associatedParts = associatedParts);
     }
 
     /**
@@ -140,7 +140,7 @@ public class Product {
      * @param part The part to add.
      */
     public void addAssociatedPart(Part part) {
-        associatedParts.add(part);
+        Inventory.associatedPartAdded(this, part);
     }
 
     /**
@@ -149,8 +149,8 @@ public class Product {
      * @return True if the part was successfully deleted, false otherwise.
      */
     public boolean deleteAssociatedPart(Part selectedAssociatedPart) {
-        return associatedParts.removeIf(part -> part.getId() == selectedAssociatedPart.getId());
         //return associatedParts.remove(selectedAssociatedPart);
+        return Inventory.associatedPartRemoved(this, selectedAssociatedPart);
     }
 
     /**
@@ -0,0 +1,43 @@
+package model;
+
+/**
+ * The ReorderListener interface receives reorder alerts from Inventory.
+ * An alert is sent when a part or product runs low, its stock falling to or below its minimum,
+ * and again when it is restocked above it. Alerts are queued by the thread that made the change
+ * and sent afterwards, in order, on a background thread that holds no Inventory lock, so a
+ * listener may look up or change the inventory. Each listener should still return quickly, since
+ * later alerts wait for it. Stock operations on one part from several threads can queue its
+ * alerts out of order, and by the time an alert arrives the stock may have moved again, so a
+ * listener that needs the current state should read the part's stock.
+ * Every method does nothing by default.
+ */
+public interface ReorderListener {
+
+    /**
+     * Called after a part's stock falls to or below its minimum, or a part is added that way.
+     * @param part The part to reorder.
+     */
+    default void partLow(Part part) {
+    }
+
+    /**
+     * Called after a low part's stock rises above its minimum.
+     * @param part The restocked part.
+     */
+    default void partRestocked(Part part) {
+    }
+
+    /**
+     * Called after a product's stock falls to or below its minimum, or a product is added that way.
+     * @param product The product to reorder.
+     */
+    default void productLow(Product product) {
+    }
+
+    /**
+     * Called after a low product's stock rises above its minimum.
+     * @param product The restocked product.
+     */
+    default void productRestocked(Product product) {
+    }
+}
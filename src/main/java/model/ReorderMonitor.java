@@ -0,0 +1,211 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The ReorderMonitor class keeps parts and products ranked by how close they are to their
+ * minimum, and sends reorder alerts as they run low or are restocked.
+ * It does nothing until Inventory ranks the existing items and activates it, which Inventory
+ * does the first time the ranking or an alert is needed, so loading the inventory does not pay for it.
+ * From then on every change re-ranks just the item it touches.
+ * Changes reach the monitor while Inventory holds its locks, so alerts are not sent from there.
+ * They are queued and sent in order on a background thread of their own, which holds no
+ * Inventory lock, so a subscriber may read or change the inventory without deadlocking the
+ * thread that made the change.
+ */
+public class ReorderMonitor implements InventoryListener {
+
+    private final LowStockIndex<Part> parts = new LowStockIndex<>(Part::getId, Part::getStock, Part::getMin);
+    private final LowStockIndex<Product> products = new LowStockIndex<>(Product::getId, Product::getStock, Product::getMin);
+    private final List<ReorderListener> subscribers = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Consumer<ReorderListener>> alerts = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "inventory-reorder-alerts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean active;
+
+    /**
+     * Checks whether the monitor has been activated.
+     * @return True if changes are being ranked, false otherwise.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Ranks an existing part without sending alerts. Used while activating.
+     * @param part The part to rank.
+     */
+    public void rankPart(Part part) {
+        parts.update(part);
+    }
+
+    /**
+     * Ranks an existing product without sending alerts. Used while activating.
+     * @param product The product to rank.
+     */
+    public void rankProduct(Product product) {
+        products.update(product);
+    }
+
+    /**
+     * Starts ranking changes and sending alerts.
+     * The caller must have ranked every existing item while holding Inventory's write lock.
+     */
+    public void activate() {
+        active = true;
+    }
+
+    /**
+     * Retrieves the ranked parts.
+     * @return The part index.
+     */
+    public LowStockIndex<Part> getParts() {
+        return parts;
+    }
+
+    /**
+     * Retrieves the ranked products.
+     * @return The product index.
+     */
+    public LowStockIndex<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * Registers a listener for reorder alerts.
+     * @param listener The listener to add.
+     */
+    public void subscribe(ReorderListener listener) {
+        subscribers.add(listener);
+    }
+
+    /**
+     * Unregisters a listener for reorder alerts.
+     * @param listener The listener to remove.
+     */
+    public void unsubscribe(ReorderListener listener) {
+        subscribers.remove(listener);
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        if (active) {
+            updatePart(part);
+        }
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        if (active) {
+            if (oldPart.getId() != newPart.getId()) {
+                parts.remove(oldPart);
+            }
+            updatePart(newPart);
+        }
+    }
+
+    @Override
+    public void partDeleted(Part part) {
+        if (active) {
+            parts.remove(part);
+        }
+    }
+
+    @Override
+    public void stockChanged(Part part, int oldStock, int newStock) {
+        if (active) {
+            updatePart(part);
+        }
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        if (active) {
+            updateProduct(product);
+        }
+    }
+
+    @Override
+    public void productUpdated(Product oldProduct, Product newProduct) {
+        if (active) {
+            if (oldProduct.getId() != newProduct.getId()) {
+                products.remove(oldProduct);
+            }
+            updateProduct(newProduct);
+        }
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        if (active) {
+            products.remove(product);
+        }
+    }
+
+    /**
+     * Re-ranks a part and queues an alert if it crossed its minimum.
+     * @param part The part that changed.
+     */
+    private void updatePart(Part part) {
+        LowStockIndex.Change change = parts.update(part);
+        if (change == LowStockIndex.Change.LOW) {
+            send(subscriber -> subscriber.partLow(part));
+        } else if (change == LowStockIndex.Change.RESTOCKED) {
+            send(subscriber -> subscriber.partRestocked(part));
+        }
+    }
+
+    /**
+     * Re-ranks a product and queues an alert if it crossed its minimum.
+     * @param product The product that changed.
+     */
+    private void updateProduct(Product product) {
+        LowStockIndex.Change change = products.update(product);
+        if (change == LowStockIndex.Change.LOW) {
+            send(subscriber -> subscriber.productLow(product));
+        } else if (change == LowStockIndex.Change.RESTOCKED) {
+            send(subscriber -> subscriber.productRestocked(product));
+        }
+    }
+
+    /**
+     * Queues an alert for every subscriber and makes sure the delivery thread will send it.
+     * @param alert The call to make on each subscriber.
+     */
+    private void send(Consumer<ReorderListener> alert) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        alerts.add(alert);
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            delivery.execute(this::deliver);
+        }
+    }
+
+    /**
+     * Sends every queued alert, in the order they were queued. Runs on the delivery thread.
+     * A subscriber that throws is logged and does not stop the others from hearing the alert.
+     */
+    private void deliver() {
+        deliveryScheduled.set(false);
+        for (Consumer<ReorderListener> alert = alerts.poll(); alert != null; alert = alerts.poll()) {
+            for (ReorderListener subscriber : subscribers) {
+                try {
+                    alert.accept(subscriber);
+                } catch (RuntimeException e) {
+                    System.getLogger(ReorderMonitor.class.getName()).log(System.Logger.Level.ERROR, "A reorder listener failed", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.TransformationList;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * The SortedListView class is a live view of an observable list in one of several named orders,
+ * for binding to a TableView.
+ * Each order is kept in a balanced search tree that also counts the nodes below it, so an
+ * element can be added, removed or read by position in O(log n). A tree is built the first
+ * time its order is chosen and is then kept up to date with every change to the source list,
+ * so switching between orders that have been used before costs nothing, and a single edit
+ * moves a single row. Until an order is chosen, or after unsort, the view shows the source
+ * list as it is.
+ * Elements are placed by the key they had when they were added and are told apart by id.
+ * A key changed in place with a setter is not seen until the element is replaced in the source.
+ * Like the source list, the view belongs to the JavaFX application thread.
+ * @param <E> The type of element in the list.
+ */
+public class SortedListView<E> extends TransformationList<E, E> {
+
+    private final ToIntFunction<? super E> idOf;
+    private final Map<String, Function<? super E, ? extends Comparable<?>>> keys = new HashMap<>();
+    private final Map<String, OrderTree<E>> trees = new HashMap<>();
+    private OrderTree<E> active;
+    private boolean descending;
+
+    /**
+     * Creates a view that shows its source in source order until an order is chosen.
+     * @param source The list to view.
+     * @param idOf   The function that reads an element's unique id.
+     */
+    public SortedListView(ObservableList<E> source, ToIntFunction<? super E> idOf) {
+        super(source);
+        this.idOf = idOf;
+    }
+
+    /**
+     * Registers an order the view can be sorted by.
+     * @param name The name of the order, such as the name of the property it sorts on.
+     * @param key  The function that reads the key an element is sorted by.
+     */
+    public void addOrder(String name, Function<? super E, ? extends Comparable<?>> key) {
+        keys.put(name, key);
+    }
+
+    /**
+     * Checks whether an order has been registered.
+     * @param name The name of the order.
+     * @return True if the view can be sorted by the order, false otherwise.
+     */
+    public boolean hasOrder(String name) {
+        return keys.containsKey(name);
+    }
+
+    /**
+     * Shows the elements in a registered order.
+     * The first time an order is used its tree is built from the source, in O(n log n).
+     * @param name      The name of the order.
+     * @param ascending True for lowest key first, false for highest key first.
+     */
+    public void sortBy(String name, boolean ascending) {
+        Function<? super E, ? extends Comparable<?>> key = keys.get(name);
+        if (key == null) {
+            throw new IllegalArgumentException("No order named " + name + ".");
+        }
+        OrderTree<E> tree = trees.computeIfAbsent(name, n -> new OrderTree<>(key, idOf, getSource()));
+        if (tree == active && descending == !ascending) {
+            return;
+        }
+        List<E> before = currentOrder();
+        active = tree;
+        descending = !ascending;
+        fireReplaceAll(before);
+    }
+
+    /**
+     * Shows the elements in source order again. The trees already built are kept up to date.
+     */
+    public void unsort() {
+        if (active == null) {
+            return;
+        }
+        List<E> before = currentOrder();
+        active = null;
+        fireReplaceAll(before);
+    }
+
+    @Override
+    public E get(int index) {
+        if (active == null) {
+            return getSource().get(index);
+        }
+        return active.get(descending ? active.size() - 1 - index : index);
+    }
+
+    @Override
+    public int size() {
+        return getSource().size();
+    }
+
+    /**
+     * Finds the source position of an element of the view.
+     * In a sorted order this searches the source list, so it takes O(n).
+     * @param index The position in the view.
+     * @return The position in the source list.
+     */
+    @Override
+    public int getSourceIndex(int index) {
+        if (active == null) {
+            return index;
+        }
+        return getSource().indexOf(get(index));
+    }
+
+    @Override
+    public int getViewIndex(int index) {
+        if (active == null) {
+            return index;
+        }
+        E element = getSource().get(index);
+        return toView(active.rank(element), active.size());
+    }
+
+    @Override
+    protected void sourceChanged(ListChangeListener.Change<? extends E> c) {
+        int changed = 0;
+        while (c.next()) {
+            changed += c.getRemovedSize() + c.getAddedSize();
+        }
+        c.reset();
+        if (changed > Math.max(1024, size() / 8)) {
+            rebuild(c);
+            return;
+        }
+        if (active == null) {
+            for (OrderTree<E> tree : trees.values()) {
+                apply(tree, c, false);
+                c.reset();
+            }
+            forward(c);
+            return;
+        }
+        for (OrderTree<E> tree : trees.values()) {
+            if (tree != active) {
+                apply(tree, c, false);
+                c.reset();
+            }
+        }
+        beginChange();
+        try {
+            apply(active, c, true);
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Applies a source change to one tree, one element at a time.
+     * @param tree   The tree to update.
+     * @param c      The source change.
+     * @param report True to report each move as part of the view's change.
+     */
+    private void apply(OrderTree<E> tree, ListChangeListener.Change<? extends E> c, boolean report) {
+        while (c.next()) {
+            for (E removed : c.getRemoved()) {
+                int rank = tree.remove(removed);
+                if (report && rank >= 0) {
+                    nextRemove(toView(rank, tree.size() + 1), removed);
+                }
+            }
+            if (c.wasAdded()) {
+                for (E added : c.getAddedSubList()) {
+                    int rank = tree.insert(added);
+                    if (report) {
+                        int index = toView(rank, tree.size());
+                        nextAdd(index, index + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every tree from the source after a change too large to apply element by element.
+     * In source order the change is passed on as it is; in a sorted order the view is reported
+     * as replaced.
+     * @param c The source change.
+     */
+    private void rebuild(ListChangeListener.Change<? extends E> c) {
+        List<E> before = active != null ? currentOrder() : null;
+        for (Map.Entry<String, OrderTree<E>> entry : trees.entrySet()) {
+            OrderTree<E> tree = new OrderTree<>(keys.get(entry.getKey()), idOf, getSource());
+            if (entry.getValue() == active) {
+                active = tree;
+            }
+            entry.setValue(tree);
+        }
+        if (before == null) {
+            forward(c);
+        } else {
+            fireReplaceAll(before);
+        }
+    }
+
+    /**
+     * Reports a source change as the view's own change, for when the view shows source order.
+     * @param c The source change.
+     */
+    private void forward(ListChangeListener.Change<? extends E> c) {
+        beginChange();
+        try {
+            while (c.next()) {
+                if (c.wasPermutated()) {
+                    int[] permutation = new int[c.getTo() - c.getFrom()];
+                    for (int i = c.getFrom(); i < c.getTo(); i++) {
+                        permutation[i - c.getFrom()] = c.getPermutation(i);
+                    }
+                    nextPermutation(c.getFrom(), c.getTo(), permutation);
+                } else if (c.wasUpdated()) {
+                    for (int i = c.getFrom(); i < c.getTo(); i++) {
+                        nextUpdate(i);
+                    }
+                } else {
+                    if (c.wasRemoved()) {
+                        nextRemove(c.getFrom(), c.getRemoved());
+                    }
+                    if (c.wasAdded()) {
+                        nextAdd(c.getFrom(), c.getTo());
+                    }
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Reports that every element of the view was replaced.
+     * @param before The elements the view held, in the order it showed them.
+     */
+    private void fireReplaceAll(List<E> before) {
+        beginChange();
+        try {
+            if (!before.isEmpty()) {
+                nextRemove(0, before);
+            }
+            if (size() > 0) {
+                nextAdd(0, size());
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Retrieves the elements in the order currently shown, without copying them.
+     * The list reads through to the source or the tree, which the callers leave untouched
+     * until the change reporting it has been delivered.
+     * @return The elements in view order.
+     */
+    private List<E> currentOrder() {
+        OrderTree<E> tree = active;
+        boolean reversed = descending;
+        if (tree == null) {
+            return Collections.unmodifiableList(getSource());
+        }
+        return new AbstractList<E>() {
+            @Override
+            public E get(int index) {
+                return tree.get(reversed ? tree.size() - 1 - index : index);
+            }
+
+            @Override
+            public int size() {
+                return tree.size();
+            }
+        };
+    }
+
+    private int toView(int rank, int size) {
+        return descending ? size - 1 - rank : rank;
+    }
+}
@@ -0,0 +1,115 @@
+package model;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The StockHold class is a reservation of part stock that lapses after a set time.
+ * A hold is settled exactly once, by consume, release or expiry, whichever comes first.
+ * Expiry is handled by one shared daemon thread, and a settled hold cancels its expiry so
+ * the thread's queue only holds live reservations.
+ * A hold belongs to the part object it was taken from. If the part is replaced through
+ * Inventory.updatePart, the replacement starts with nothing reserved.
+ */
+public final class StockHold {
+
+    private static final ScheduledThreadPoolExecutor reaper = createReaper();
+
+    private final Part part;
+    private final int quantity;
+    private final AtomicBoolean settled = new AtomicBoolean();
+    private final ScheduledFuture<?> expiry;
+
+    /**
+     * Creates a hold on units that have already been reserved and schedules its expiry.
+     * @param part       The part the units were reserved from.
+     * @param quantity   The number of units reserved.
+     * @param timeToLive How long the hold lasts.
+     */
+    StockHold(Part part, int quantity, Duration timeToLive) {
+        this.part = part;
+        this.quantity = quantity;
+        this.expiry = reaper.schedule(this::release, timeToLive.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Retrieves the part the units are held on.
+     * @return The part.
+     */
+    public Part getPart() {
+        return part;
+    }
+
+    /**
+     * Retrieves the number of units held.
+     * @return The quantity.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Checks whether the hold still reserves its units.
+     * @return True if the hold has not been consumed, released or expired, false otherwise.
+     */
+    public boolean isActive() {
+        return !settled.get();
+    }
+
+    /**
+     * Takes the held units out of stock.
+     * If the part refuses, because its minimum has been raised since the hold was taken,
+     * the units are released instead.
+     * @return True if the units were taken, false if the hold was already settled or the part refused.
+     */
+    public boolean consume() {
+        if (!settle()) {
+            return false;
+        }
+        if (part.consume(quantity)) {
+            return true;
+        }
+        part.release(quantity);
+        return false;
+    }
+
+    /**
+     * Returns the held units to the unreserved stock.
+     * @return True if the units were released, false if the hold was already settled.
+     */
+    public boolean release() {
+        if (!settle()) {
+            return false;
+        }
+        part.release(quantity);
+        return true;
+    }
+
+    /**
+     * Marks the hold settled and cancels its expiry.
+     * A very short hold can expire before its constructor has stored the expiry, so it may be null here.
+     * @return True if this call settled the hold, false if it was already settled.
+     */
+    private boolean settle() {
+        if (!settled.compareAndSet(false, true)) {
+            return false;
+        }
+        if (expiry != null) {
+            expiry.cancel(false);
+        }
+        return true;
+    }
+
+    private static ScheduledThreadPoolExecutor createReaper() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "stock-hold-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
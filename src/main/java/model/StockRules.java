@@ -0,0 +1,44 @@
+package model;
+
+/**
+ * The StockRules class holds the checks a part or product must pass before it is saved.
+ * The add and modify screens and the bulk importer all use these checks, so they accept
+ * the same values and report the same messages.
+ */
+public final class StockRules {
+
+    /**
+     * The message for a missing name.
+     */
+    public static final String NAME_REQUIRED = "Name field must be filled in.";
+
+    /**
+     * The message for a minimum above the maximum.
+     */
+    public static final String MIN_ABOVE_MAX = "Minimum must be less than the Maximum.";
+
+    /**
+     * The message for a stock level outside the minimum and maximum.
+     */
+    public static final String STOCK_OUT_OF_RANGE = "The inventory must be within the minimum and maximum range.";
+
+    private StockRules() {
+    }
+
+    /**
+     * Checks the stock level against the minimum and maximum.
+     * @param stock The stock level.
+     * @param min   The minimum stock level.
+     * @param max   The maximum stock level.
+     * @return The message describing the first rule broken, or null if the levels are valid.
+     */
+    public static String checkLevels(int stock, int min, int max) {
+        if (min > max) {
+            return MIN_ABOVE_MAX;
+        }
+        if (stock < min || stock > max) {
+            return STOCK_OUT_OF_RANGE;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * The StoreException class reports that an InventoryStore could not complete an operation,
+ * for example because its database could not be reached.
+ */
+public class StoreException extends RuntimeException {
+
+    /**
+     * Creates an exception.
+     * @param message The description of the failed operation.
+     * @param cause   The underlying failure.
+     */
+    public StoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,92 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The StringDictionary class assigns a compact int code to each distinct string.
+ * Each distinct string is stored once, and records keep only its code.
+ * Codes start at 0 and are never reused. Encoding is synchronized; decoding takes no lock.
+ */
+public class StringDictionary {
+
+    private String[] strings = new String[16];
+    private int[] table = new int[32];
+    private volatile int size;
+
+    /**
+     * Retrieves the code for a string, assigning a new code the first time the string is seen.
+     * @param text The string to encode. Must not be null.
+     * @return The code of the string.
+     */
+    public synchronized int encode(String text) {
+        int mask = table.length - 1;
+        int slot = text.hashCode() & mask;
+        while (table[slot] != 0) {
+            int code = table[slot] - 1;
+            if (strings[code].equals(text)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int code = size;
+        if (code == strings.length) {
+            strings = Arrays.copyOf(strings, code << 1);
+        }
+        strings[code] = text;
+        table[slot] = code + 1;
+        if ((code + 1) * 2 > table.length) {
+            rehash(table.length << 1, code + 1);
+        }
+        size = code + 1;
+        return code;
+    }
+
+    /**
+     * Retrieves the code of a string without assigning one.
+     * @param text The string to look up.
+     * @return The code of the string, or -1 if the string has never been encoded.
+     */
+    public synchronized int find(String text) {
+        int mask = table.length - 1;
+        for (int slot = text.hashCode() & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int code = table[slot] - 1;
+            if (strings[code].equals(text)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the string for a code.
+     * @param code The code returned by encode.
+     * @return The string the code stands for.
+     */
+    public String decode(int code) {
+        if (code < 0 || code >= size) {
+            throw new IllegalArgumentException("Unknown dictionary code " + code);
+        }
+        return strings[code];
+    }
+
+    /**
+     * Retrieves the number of distinct strings in the dictionary.
+     * @return The number of codes assigned.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity, int count) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int code = 0; code < count; code++) {
+            int slot = strings[code].hashCode() & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = code + 1;
+        }
+        table = rehashed;
+    }
+}
@@ -0,0 +1,54 @@
+package model;
+
+/**
+ * The SupplierDictionary class maps supplier company names to compact int codes.
+ * Outsourced parts store the code instead of their own copy of the company name,
+ * so each supplier's name is held once however many parts come from it.
+ */
+public final class SupplierDictionary {
+
+    /**
+     * The code stored for a part that has no company name.
+     */
+    public static final int NONE = -1;
+
+    private static final StringDictionary companies = new StringDictionary();
+
+    private SupplierDictionary() {
+    }
+
+    /**
+     * Retrieves the code for a company name, assigning one the first time the name is seen.
+     * @param companyName The company name, or null.
+     * @return The code of the company, or NONE for null.
+     */
+    public static int encode(String companyName) {
+        return companyName == null ? NONE : companies.encode(companyName);
+    }
+
+    /**
+     * Retrieves the code of a company name without assigning one.
+     * @param companyName The company name to look up.
+     * @return The code of the company, or NONE if no part has ever used the name.
+     */
+    public static int find(String companyName) {
+        return companyName == null ? NONE : companies.find(companyName);
+    }
+
+    /**
+     * Retrieves the company name for a code.
+     * @param code The code returned by encode.
+     * @return The company name, or null for NONE.
+     */
+    public static String decode(int code) {
+        return code == NONE ? null : companies.decode(code);
+    }
+
+    /**
+     * Retrieves the number of distinct suppliers seen so far.
+     * @return The number of codes assigned.
+     */
+    public static int size() {
+        return companies.size();
+    }
+}
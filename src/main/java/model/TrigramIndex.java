@@ -0,0 +1,145 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The TrigramIndex class is an inverted index from every three-character sequence
+ * of an item's name to the items containing it.
+ * A substring search intersects the posting sets of the search term's trigrams and
+ * only checks the surviving candidates, instead of every item.
+ * Matching is case-sensitive, the same as String.contains.
+ * @param <T> The type of item being indexed.
+ */
+public class TrigramIndex<T> {
+
+    /**
+     * The shortest search term the index can narrow. Shorter terms need a full scan.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    private final Function<T, String> nameOf;
+    private final Map<Long, Set<T>> postings = new HashMap<>();
+    private final Map<T, String> indexedNames = new IdentityHashMap<>();
+
+    /**
+     * Creates an empty trigram index.
+     * @param nameOf The function that reads the name of an item.
+     */
+    public TrigramIndex(Function<T, String> nameOf) {
+        this.nameOf = nameOf;
+    }
+
+    /**
+     * Adds an item to the index under its current name.
+     * @param item The item to add.
+     */
+    public void add(T item) {
+        String name = nameOf.apply(item);
+        indexedNames.put(item, name);
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            postings.computeIfAbsent(gram(name, i), g -> Collections.newSetFromMap(new IdentityHashMap<>())).add(item);
+        }
+    }
+
+    /**
+     * Removes an item from the index.
+     * The item is found under the name it was indexed with, even if it has since been renamed.
+     * @param item The item to remove.
+     * @return True if the item was indexed, false otherwise.
+     */
+    public boolean remove(T item) {
+        String name = indexedNames.remove(item);
+        if (name == null) {
+            return false;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            Long gram = gram(name, i);
+            Set<T> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(item);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces one item with another.
+     * @param oldItem The item to remove.
+     * @param newItem The item to add.
+     */
+    public void replace(T oldItem, T newItem) {
+        remove(oldItem);
+        add(newItem);
+    }
+
+    /**
+     * Checks whether a search term is long enough for the index to narrow.
+     * @param term The search term.
+     * @return True if collect can answer the term, false if a full scan is needed.
+     */
+    public static boolean canSearch(String term) {
+        return term.length() >= GRAM_LENGTH;
+    }
+
+    /**
+     * Collects every item whose name contains the search term.
+     * The smallest posting set is used as the candidate list, each candidate must appear in
+     * every other posting set, and survivors are confirmed with String.contains.
+     * @param term    The substring to search for. Must be at least GRAM_LENGTH characters long.
+     * @param results The list the matching items are added to.
+     */
+    public void collect(String term, List<? super T> results) {
+        if (!canSearch(term)) {
+            throw new IllegalArgumentException("Search term is shorter than " + GRAM_LENGTH + " characters.");
+        }
+        List<Set<T>> sets = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            Set<T> posting = postings.get(gram(term, i));
+            if (posting == null) {
+                return;
+            }
+            sets.add(posting);
+        }
+        sets.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        Set<T> smallest = sets.get(0);
+        for (T candidate : smallest) {
+            boolean inAll = true;
+            for (int s = 1; s < sets.size() && inAll; s++) {
+                inAll = sets.get(s).contains(candidate);
+            }
+            if (inAll && nameOf.apply(candidate).contains(term)) {
+                results.add(candidate);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of items in the index.
+     * @return The number of indexed items.
+     */
+    public int size() {
+        return indexedNames.size();
+    }
+
+    /**
+     * Packs the three characters starting at an offset into one key.
+     * The characters are spaced 21 bits apart so that, for ordinary text, each one lands on
+     * different bits of the key's hash code and the posting map does not collide.
+     * @param text   The text to read from.
+     * @param offset The offset of the first character.
+     * @return The packed trigram.
+     */
+    private static Long gram(String text, int offset) {
+        return text.charAt(offset) | ((long) text.charAt(offset + 1) << 21) | ((long) text.charAt(offset + 2) << 42);
+    }
+}
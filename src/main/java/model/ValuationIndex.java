@@ -0,0 +1,122 @@
+package model;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ValuationIndex class keeps the value of the parts in the inventory, the sum of price
+ * times stock, overall, for InHouse and Outsourced parts, and for each supplier.
+ * Each change to the inventory adds or subtracts the value of the parts it touches, so reading
+ * a total never walks the parts. Values are BigDecimal, converted from each price's decimal
+ * form, so the sums stay exact however many parts are added and removed.
+ * Stock changes arrive on several threads at once, so the totals are guarded by the index's lock.
+ * Prices can only change through Inventory.updatePart, and setStock reports its change like
+ * the other stock operations, so no change to a stocked part is missed.
+ */
+public class ValuationIndex implements InventoryListener {
+
+    private BigDecimal total = BigDecimal.ZERO;
+    private BigDecimal inHouse = BigDecimal.ZERO;
+    private BigDecimal outsourced = BigDecimal.ZERO;
+    private final IntMap<BigDecimal> bySupplierCode = new IntMap<>();
+
+    /**
+     * Retrieves the value of every part in the inventory.
+     * @return The total value.
+     */
+    public synchronized BigDecimal getTotal() {
+        return total;
+    }
+
+    /**
+     * Retrieves the value of the InHouse parts in the inventory.
+     * @return The InHouse value.
+     */
+    public synchronized BigDecimal getInHouse() {
+        return inHouse;
+    }
+
+    /**
+     * Retrieves the value of the Outsourced parts in the inventory.
+     * @return The Outsourced value.
+     */
+    public synchronized BigDecimal getOutsourced() {
+        return outsourced;
+    }
+
+    /**
+     * Retrieves the value of the Outsourced parts from one supplier.
+     * @param companyName The supplier's company name.
+     * @return The supplier's value, or zero if no part in the inventory comes from it.
+     */
+    public BigDecimal getSupplier(String companyName) {
+        int code = SupplierDictionary.find(companyName);
+        if (code == SupplierDictionary.NONE) {
+            return BigDecimal.ZERO;
+        }
+        synchronized (this) {
+            BigDecimal value = bySupplierCode.get(code);
+            return value != null ? value : BigDecimal.ZERO;
+        }
+    }
+
+    /**
+     * Copies the value of every supplier with parts in the inventory.
+     * @return A new map from company name to value.
+     */
+    public synchronized Map<String, BigDecimal> getSuppliers() {
+        Map<String, BigDecimal> values = new HashMap<>();
+        bySupplierCode.forEach((code, value) -> values.put(SupplierDictionary.decode(code), value));
+        return values;
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        add(part, part.getStock());
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        add(oldPart, -oldPart.getStock());
+        add(newPart, newPart.getStock());
+    }
+
+    @Override
+    public void partDeleted(Part part) {
+        add(part, -part.getStock());
+    }
+
+    @Override
+    public void stockChanged(Part part, int oldStock, int newStock) {
+        add(part, newStock - oldStock);
+    }
+
+    /**
+     * Adds the value of a number of units of a part to every total the part counts towards.
+     * @param part  The part.
+     * @param units The number of units, negative to subtract.
+     */
+    private void add(Part part, long units) {
+        if (units == 0) {
+            return;
+        }
+        BigDecimal value = BigDecimal.valueOf(part.getPrice()).multiply(BigDecimal.valueOf(units));
+        int supplierCode = part instanceof Outsourced ? ((Outsourced) part).getCompanyCode() : SupplierDictionary.NONE;
+        synchronized (this) {
+            total = total.add(value);
+            if (part instanceof InHouse) {
+                inHouse = inHouse.add(value);
+            } else if (part instanceof Outsourced) {
+                outsourced = outsourced.add(value);
+                BigDecimal supplierValue = bySupplierCode.get(supplierCode);
+                supplierValue = supplierValue != null ? supplierValue.add(value) : value;
+                if (supplierValue.signum() == 0) {
+                    bySupplierCode.remove(supplierCode);
+                } else {
+                    bySupplierCode.put(supplierCode, supplierValue);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The WhereUsedIndex class maps each part id to the products that list it as an associated part.
+ * It answers "which products use this part" without walking every product's parts list.
+ */
+public class WhereUsedIndex {
+
+    private final IntMap<IntMap<Product>> productsByPartId = new IntMap<>();
+
+    /**
+     * Records that a product uses a part.
+     * @param product The product.
+     * @param partId  The id of the part it uses.
+     */
+    public void link(Product product, int partId) {
+        IntMap<Product> users = productsByPartId.get(partId);
+        if (users == null) {
+            users = new IntMap<>(4);
+            productsByPartId.put(partId, users);
+        }
+        users.put(product.getId(), product);
+    }
+
+    /**
+     * Records that a product no longer uses a part.
+     * @param product The product.
+     * @param partId  The id of the part it stopped using.
+     */
+    public void unlink(Product product, int partId) {
+        IntMap<Product> users = productsByPartId.get(partId);
+        if (users != null && users.remove(product.getId(), product) && users.isEmpty()) {
+            productsByPartId.remove(partId);
+        }
+    }
+
+    /**
+     * Records every associated part of a product.
+     * @param product The product to add.
+     */
+    public void linkAll(Product product) {
+        for (Part part : product.getAllAssociatedParts()) {
+            link(product, part.getId());
+        }
+    }
+
+    /**
+     * Removes every associated part of a product.
+     * @param product The product to remove.
+     */
+    public void unlinkAll(Product product) {
+        for (Part part : product.getAllAssociatedParts()) {
+            unlink(product, part.getId());
+        }
+    }
+
+    /**
+     * Retrieves the products that use a part.
+     * @param partId The id of the part.
+     * @return The products using the part. The list is empty if no product uses it.
+     */
+    public List<Product> productsUsing(int partId) {
+        IntMap<Product> users = productsByPartId.get(partId);
+        if (users == null) {
+            return new ArrayList<>(0);
+        }
+        List<Product> products = new ArrayList<>(users.size());
+        users.forEach((productId, product) -> products.add(product));
+        return products;
+    }
+
+    /**
+     * Checks whether any product uses a part.
+     * @param partId The id of the part.
+     * @return True if at least one product uses the part, false otherwise.
+     */
+    public boolean isUsed(int partId) {
+        return productsByPartId.containsKey(partId);
+    }
+}
@@ -1,6 +1,9 @@
 module main.c482 {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.sql;
+    requires com.h2database;
+    requires jdk.httpserver;
 
 
     opens main.c482 to javafx.fxml;
@@ -8,5 +11,7 @@ module main.c482 {
     exports main.c482;
     exports model;
     exports controller;
+    exports persistence;
+    exports api;
     opens controller to javafx.fxml;
 }
\ No newline at end of file
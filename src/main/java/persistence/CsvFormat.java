@@ -0,0 +1,116 @@
+package persistence;
+
+import java.util.List;
+
+/**
+ * The CsvFormat class describes the CSV layout shared by the importer and the exporter.
+ * Every row is one part or product:
+ * kind,id,name,price,stock,min,max,detail
+ * The kind is InHouse, Outsourced or Product. The detail is the machine id of an InHouse part,
+ * the company name of an Outsourced part, or a product's associated part ids separated by
+ * semicolons. Fields containing a comma, a quote or a line break are quoted, with quotes
+ * doubled. A record is one line unless a quoted field holds a line break, in which case it
+ * continues onto the following lines until the quote is closed.
+ */
+final class CsvFormat {
+
+    static final String HEADER = "kind,id,name,price,stock,min,max,detail";
+    static final String IN_HOUSE = "InHouse";
+    static final String OUTSOURCED = "Outsourced";
+    static final String PRODUCT = "Product";
+    static final int FIELD_COUNT = 8;
+    static final char PART_ID_SEPARATOR = ';';
+
+    private CsvFormat() {
+    }
+
+    /**
+     * Splits a line into fields, removing quotes.
+     * @param line   The line to split.
+     * @param fields The list the fields are added to.
+     * @return True if the line was well formed, false if a quoted field was not closed.
+     */
+    static boolean split(String line, List<String> fields) {
+        int length = line.length();
+        int i = 0;
+        while (true) {
+            if (i < length && line.charAt(i) == '"') {
+                StringBuilder field = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return false;
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                fields.add(field.toString());
+                if (i < length && line.charAt(i) != ',') {
+                    return false;
+                }
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? length : comma;
+                fields.add(line.substring(i, end));
+                i = end;
+            }
+            if (i >= length) {
+                return true;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Checks whether a quoted field is still open at the end of a line, so the record goes on
+     * to the next line. Doubled quotes inside a field cancel out, so only the count matters.
+     * @param line   The line to check.
+     * @param inside True if the line starts inside a quoted field carried over from the line before.
+     * @return True if the line ends inside a quoted field.
+     */
+    static boolean isQuoteOpen(String line, boolean inside) {
+        boolean open = inside;
+        for (int i = line.indexOf('"'); i >= 0; i = line.indexOf('"', i + 1)) {
+            open = !open;
+        }
+        return open;
+    }
+
+    /**
+     * Appends a field to a row, quoting it if it contains a comma, a quote or a line break.
+     * @param row   The row being built.
+     * @param value The field value. Null is written as an empty field.
+     */
+    static void appendField(StringBuilder row, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+}
@@ -0,0 +1,343 @@
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+import model.StockRules;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CsvImporter class loads parts and products from a CSV file in the CsvFormat layout.
+ * The file is read as a stream of fixed-size chunks of records. A record is usually one line, but
+ * a quoted field may hold line breaks, in which case the record runs on until the quote is
+ * closed, or for at most MAX_RECORD_LINES lines so a stray quote cannot swallow the rest of the
+ * file. Errors are reported against the line a record starts on. Chunks are parsed and validated
+ * on a pool of worker threads, one per core, and committed to Inventory in file order with one
+ * bulk add per chunk. Only a few chunks are in flight at once, so memory use does not depend
+ * on the size of the file.
+ * Rows are checked with the same rules as the add screens. A row that fails is left out and
+ * recorded in the ImportReport; the rest of the file is still imported.
+ * A blank id is given a new id. A product may only refer to parts already in the inventory or
+ * earlier in the file.
+ */
+public class CsvImporter {
+
+    private static final int CHUNK_LINES = 8192;
+    private static final int MAX_RECORD_LINES = 1024;
+
+    private final int threads;
+
+    /**
+     * Creates an importer that uses one worker thread per core.
+     */
+    public CsvImporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an importer with a set number of worker threads.
+     * @param threads The number of threads parsing chunks.
+     */
+    public CsvImporter(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Imports a UTF-8 CSV file.
+     * @param file The file to import.
+     * @return The report of what was imported and rejected.
+     * @throws IOException If the file cannot be read.
+     */
+    public ImportReport importFile(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader);
+        }
+    }
+
+    /**
+     * Imports CSV rows from a reader. The reader is not closed.
+     * @param reader The reader to import from.
+     * @return The report of what was imported and rejected.
+     * @throws IOException If the reader fails.
+     */
+    public ImportReport importFrom(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+        ImportReport report = new ImportReport();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+        try {
+            long lineNumber = 0;
+            List<String> batch = new ArrayList<>(CHUNK_LINES);
+            long[] batchLines = new long[CHUNK_LINES];
+            StringBuilder record = new StringBuilder();
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                lineNumber++;
+                if (lineNumber == 1 && line.regionMatches(true, 0, "kind,", 0, 5)) {
+                    continue;
+                }
+                long recordLine = lineNumber;
+                int recordLines = 1;
+                if (CsvFormat.isQuoteOpen(line, false)) {
+                    record.setLength(0);
+                    record.append(line);
+                    boolean open = true;
+                    while (open && recordLines < MAX_RECORD_LINES && (line = lines.readLine()) != null) {
+                        lineNumber++;
+                        recordLines++;
+                        record.append('\n').append(line);
+                        open = CsvFormat.isQuoteOpen(line, true);
+                    }
+                    line = record.toString();
+                }
+                batchLines[batch.size()] = recordLine;
+                batch.add(line);
+                if (batch.size() == CHUNK_LINES) {
+                    inFlight.add(submit(workers, batchLines, batch));
+                    batch = new ArrayList<>(CHUNK_LINES);
+                    batchLines = new long[CHUNK_LINES];
+                    if (inFlight.size() >= maxInFlight) {
+                        commit(await(inFlight.poll()), report);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.add(submit(workers, batchLines, batch));
+            }
+            while (!inFlight.isEmpty()) {
+                commit(await(inFlight.poll()), report);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return report;
+    }
+
+    private static Future<Chunk> submit(ExecutorService workers, long[] lineNumbers, List<String> records) {
+        return workers.submit(() -> parse(lineNumbers, records));
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("A chunk could not be parsed.", e.getCause());
+        }
+    }
+
+    /**
+     * Parses and validates a chunk of records. Runs on a worker thread.
+     * @param lineNumbers The line number each record starts on.
+     * @param records     The records.
+     * @return The parsed chunk.
+     */
+    private static Chunk parse(long[] lineNumbers, List<String> records) {
+        Chunk chunk = new Chunk();
+        List<String> fields = new ArrayList<>(CsvFormat.FIELD_COUNT);
+        for (int i = 0; i < records.size(); i++) {
+            String line = records.get(i);
+            long lineNumber = lineNumbers[i];
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.rows++;
+            fields.clear();
+            if (!CsvFormat.split(line, fields)) {
+                chunk.errors.add(new ImportReport.RowError(lineNumber, "A quoted field is not closed."));
+                continue;
+            }
+            try {
+                parseRow(fields, lineNumber, chunk);
+            } catch (RowException e) {
+                chunk.errors.add(new ImportReport.RowError(lineNumber, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses one row into a part or a product and adds it to the chunk.
+     * @param fields     The fields of the row.
+     * @param lineNumber The line number of the row.
+     * @param chunk      The chunk to add to.
+     * @throws RowException If the row is invalid.
+     */
+    private static void parseRow(List<String> fields, long lineNumber, Chunk chunk) throws RowException {
+        if (fields.size() != CsvFormat.FIELD_COUNT) {
+            throw new RowException("Expected " + CsvFormat.FIELD_COUNT + " fields but found " + fields.size() + ".");
+        }
+        String kind = fields.get(0).trim();
+        boolean product = kind.equalsIgnoreCase(CsvFormat.PRODUCT);
+        if (!product && !kind.equalsIgnoreCase(CsvFormat.IN_HOUSE) && !kind.equalsIgnoreCase(CsvFormat.OUTSOURCED)) {
+            throw new RowException("Unknown kind '" + kind + "'. Expected InHouse, Outsourced or Product.");
+        }
+        String idText = fields.get(1).trim();
+        String name = fields.get(2);
+        if (name.isEmpty()) {
+            throw new RowException(StockRules.NAME_REQUIRED);
+        }
+        double price = parseDouble(fields.get(3), "price");
+        int stock = parseInt(fields.get(4), "stock");
+        int min = parseInt(fields.get(5), "min");
+        int max = parseInt(fields.get(6), "max");
+        String levelError = StockRules.checkLevels(stock, min, max);
+        if (levelError != null) {
+            throw new RowException(levelError);
+        }
+        String detail = fields.get(7);
+        if (product) {
+            int id = idText.isEmpty() ? Inventory.nextProductId() : parseInt(idText, "id");
+            chunk.products.add(new Product(id, name, price, stock, min, max));
+            chunk.productPartIds.add(parsePartIds(detail));
+            chunk.productLines.add(lineNumber);
+        } else {
+            int id = idText.isEmpty() ? Inventory.nextPartId() : parseInt(idText, "id");
+            if (kind.equalsIgnoreCase(CsvFormat.IN_HOUSE)) {
+                chunk.parts.add(new InHouse(id, name, price, stock, min, max, parseInt(detail, "machine id")));
+            } else {
+                chunk.parts.add(new Outsourced(id, name, price, stock, min, max, detail));
+            }
+            chunk.partLines.add(lineNumber);
+        }
+    }
+
+    /**
+     * Adds a parsed chunk to the inventory and records its results. Runs on the reading thread,
+     * one chunk at a time in file order.
+     * @param chunk  The parsed chunk.
+     * @param report The report to update.
+     */
+    private static void commit(Chunk chunk, ImportReport report) {
+        report.addRows(chunk.rows);
+        List<ImportReport.RowError> errors = new ArrayList<>(chunk.errors);
+        List<Part> parts = new ArrayList<>(chunk.parts.size());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < chunk.parts.size(); i++) {
+            Part part = chunk.parts.get(i);
+            if (!ids.add(part.getId()) || Inventory.lookupPart(part.getId()) != null) {
+                errors.add(new ImportReport.RowError(chunk.partLines.get(i), "Part id " + part.getId() + " already exists."));
+            } else {
+                parts.add(part);
+            }
+        }
+        Inventory.addParts(parts);
+        report.addParts(parts.size());
+
+        List<Product> products = new ArrayList<>(chunk.products.size());
+        ids.clear();
+        for (int i = 0; i < chunk.products.size(); i++) {
+            Product product = chunk.products.get(i);
+            long lineNumber = chunk.productLines.get(i);
+            if (!ids.add(product.getId()) || Inventory.lookupProduct(product.getId()) != null) {
+                errors.add(new ImportReport.RowError(lineNumber, "Product id " + product.getId() + " already exists."));
+                continue;
+            }
+            String missing = null;
+            for (int partId : chunk.productPartIds.get(i)) {
+                Part part = Inventory.lookupPart(partId);
+                if (part == null) {
+                    missing = "Unknown part id " + partId + ".";
+                    break;
+                }
+                product.getAllAssociatedParts().add(part);
+            }
+            if (missing != null) {
+                errors.add(new ImportReport.RowError(lineNumber, missing));
+            } else {
+                products.add(product);
+            }
+        }
+        Inventory.addProducts(products);
+        report.addProducts(products.size());
+
+        errors.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+        for (ImportReport.RowError error : errors) {
+            report.addError(error);
+        }
+    }
+
+    private static int[] parsePartIds(String detail) throws RowException {
+        if (detail.isBlank()) {
+            return new int[0];
+        }
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= detail.length(); i++) {
+            if (i == detail.length() || detail.charAt(i) == CsvFormat.PART_ID_SEPARATOR) {
+                pieces.add(detail.substring(start, i));
+                start = i + 1;
+            }
+        }
+        int[] partIds = new int[pieces.size()];
+        for (int i = 0; i < partIds.length; i++) {
+            partIds[i] = parseInt(pieces.get(i), "part id");
+        }
+        return partIds;
+    }
+
+    private static int parseInt(String text, String field) throws RowException {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new RowException("Invalid " + field + " '" + text + "'.");
+        }
+    }
+
+    private static double parseDouble(String text, String field) throws RowException {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new RowException("Invalid " + field + " '" + text + "'.");
+        }
+    }
+
+    /**
+     * The Chunk class holds the rows of one chunk after parsing.
+     */
+    private static final class Chunk {
+        private int rows;
+        private final List<Part> parts = new ArrayList<>();
+        private final List<Long> partLines = new ArrayList<>();
+        private final List<Product> products = new ArrayList<>();
+        private final List<int[]> productPartIds = new ArrayList<>();
+        private final List<Long> productLines = new ArrayList<>();
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+    }
+
+    /**
+     * Signals a row that cannot be imported.
+     */
+    private static final class RowException extends Exception {
+        RowException(String message) {
+            super(message);
+        }
+    }
+}
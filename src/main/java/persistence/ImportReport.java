@@ -0,0 +1,129 @@
+package persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ImportReport class describes the result of a bulk import.
+ * It counts the rows read and the parts and products added, and lists the rows that were
+ * rejected with the reason for each. Only the first MAX_LISTED_ERRORS rejections are listed,
+ * so a badly broken file cannot use up memory; getErrorCount still counts every one.
+ */
+public class ImportReport {
+
+    /**
+     * The largest number of rejected rows kept in the error list.
+     */
+    public static final int MAX_LISTED_ERRORS = 10_000;
+
+    private long rowCount;
+    private long partCount;
+    private long productCount;
+    private long errorCount;
+    private final List<RowError> errors = new ArrayList<>();
+
+    /**
+     * Retrieves the number of data rows read, not counting the header or blank lines.
+     * @return The row count.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Retrieves the number of parts added to the inventory.
+     * @return The part count.
+     */
+    public long getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Retrieves the number of products added to the inventory.
+     * @return The product count.
+     */
+    public long getProductCount() {
+        return productCount;
+    }
+
+    /**
+     * Retrieves the number of rows that were rejected.
+     * @return The error count.
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Retrieves the rejected rows, in file order.
+     * @return An unmodifiable list of the first MAX_LISTED_ERRORS rejections.
+     */
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    void addRows(long rows) {
+        rowCount += rows;
+    }
+
+    void addParts(long parts) {
+        partCount += parts;
+    }
+
+    void addProducts(long products) {
+        productCount += products;
+    }
+
+    void addError(RowError error) {
+        errorCount++;
+        if (errors.size() < MAX_LISTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return rowCount + " rows read, " + partCount + " parts and " + productCount + " products imported, "
+                + errorCount + " rows rejected";
+    }
+
+    /**
+     * The RowError class describes one rejected row.
+     */
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        /**
+         * Creates a row error.
+         * @param line    The line number of the row, starting at 1.
+         * @param message The reason the row was rejected.
+         */
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * Retrieves the line number of the row.
+         * @return The line number, starting at 1.
+         */
+        public long getLine() {
+            return line;
+        }
+
+        /**
+         * Retrieves the reason the row was rejected.
+         * @return The message.
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The InventoryExporter class writes every part and product to a CSV or JSON file.
+ * Parts and products are streamed from Inventory one at a time into a buffered writer over a
+ * file channel, so the export never holds more than one row in memory and does not stop
+ * other threads from changing the inventory. Each product's associated parts are copied with
+ * Inventory.copyAssociatedParts, so a product being edited is written either before or after the
+ * edit. The file is written under a temporary name and moved into place when complete.
+ * CSV output uses the CsvFormat layout and can be read back by CsvImporter.
+ * JSON output is an object with a "parts" array and a "products" array.
+ */
+public class InventoryExporter {
+
+    /**
+     * The formats the exporter can write.
+     */
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    /**
+     * The ProgressListener interface is told how far an export has got.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called periodically from the exporting thread.
+         * @param done  The number of rows written so far.
+         * @param total The number of rows expected. Changes made during the export may make
+         *              the final count differ slightly.
+         */
+        void progress(long done, long total);
+    }
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Format format;
+
+    /**
+     * Creates an exporter.
+     * @param format The format to write.
+     */
+    public InventoryExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Writes the inventory to a file, replacing it if it exists.
+     * @param file     The file to write.
+     * @param progress The listener told about progress, or null.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long export(Path file, ProgressListener progress) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Row row = new Row(progress, (long) Inventory.getPartCount() + Inventory.getProductCount(), format == Format.CSV);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE)) {
+            row.out = out;
+            if (format == Format.CSV) {
+                writeCsv(row);
+            } else {
+                writeJson(row);
+            }
+            out.flush();
+            channel.force(false);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (progress != null) {
+            progress.progress(row.done, Math.max(row.total, row.done));
+        }
+        return row.done;
+    }
+
+    private static void writeCsv(Row row) {
+        row.line.append(CsvFormat.HEADER);
+        row.writeRaw();
+        Inventory.forEachPart(part -> {
+            StringBuilder line = row.line;
+            if (part instanceof Outsourced) {
+                line.append(CsvFormat.OUTSOURCED);
+            } else {
+                line.append(CsvFormat.IN_HOUSE);
+            }
+            appendCommon(line, part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+            if (part instanceof InHouse) {
+                line.append(((InHouse) part).getMachineId());
+            } else if (part instanceof Outsourced) {
+                CsvFormat.appendField(line, ((Outsourced) part).getCompanyName());
+            }
+            row.write();
+        });
+        Inventory.forEachProduct(product -> {
+            StringBuilder line = row.line;
+            line.append(CsvFormat.PRODUCT);
+            appendCommon(line, product.getId(), product.getName(), product.getPrice(), product.getStock(), product.getMin(), product.getMax());
+            List<Part> associatedParts = Inventory.copyAssociatedParts(product);
+            for (int i = 0; i < associatedParts.size(); i++) {
+                if (i > 0) {
+                    line.append(CsvFormat.PART_ID_SEPARATOR);
+                }
+                line.append(associatedParts.get(i).getId());
+            }
+            row.write();
+        });
+    }
+
+    private static void appendCommon(StringBuilder line, int id, String name, double price, int stock, int min, int max) {
+        line.append(',').append(id).append(',');
+        CsvFormat.appendField(line, name);
+        line.append(',').append(price)
+                .append(',').append(stock)
+                .append(',').append(min)
+                .append(',').append(max)
+                .append(',');
+    }
+
+    private static void writeJson(Row row) {
+        row.line.append("{\"parts\":[");
+        row.writeRaw();
+        row.first = true;
+        Inventory.forEachPart(part -> {
+            row.line.append(row.first ? "\n" : ",\n");
+            row.first = false;
+            JsonCodec.appendPart(row.line, part);
+            row.write();
+        });
+        row.line.append("\n],\"products\":[");
+        row.writeRaw();
+        row.first = true;
+        Inventory.forEachProduct(product -> {
+            row.line.append(row.first ? "\n" : ",\n");
+            row.first = false;
+            JsonCodec.appendProduct(row.line, product);
+            row.write();
+        });
+        row.line.append("\n]}\n");
+        row.writeRaw();
+    }
+
+    /**
+     * The Row class holds the state of an export in progress: the line being built,
+     * the writer and the progress counters.
+     */
+    private static final class Row {
+        private final StringBuilder line = new StringBuilder(256);
+        private final ProgressListener progress;
+        private final long total;
+        private final boolean endLines;
+        private Writer out;
+        private long done;
+        private boolean first;
+
+        Row(ProgressListener progress, long total, boolean endLines) {
+            this.progress = progress;
+            this.total = total;
+            this.endLines = endLines;
+        }
+
+        /**
+         * Writes the current line as a data row and reports progress every PROGRESS_INTERVAL rows.
+         */
+        void write() {
+            writeRaw();
+            done++;
+            if (progress != null && done % PROGRESS_INTERVAL == 0) {
+                progress.progress(done, Math.max(total, done));
+            }
+        }
+
+        /**
+         * Writes the current line, followed by a line break for CSV, and clears it.
+         */
+        void writeRaw() {
+            try {
+                out.append(line);
+                if (endLines) {
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            line.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package persistence;
+
+import model.Inventory;
+import model.Part;
+import model.Product;
+import model.StoreException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The InventoryStorage class keeps the inventory in a directory.
+ * By default it is kept as a snapshot plus a mutation log. Opening the storage decodes the whole
+ * snapshot, replays the log written since and adds every part and product to Inventory, so it
+ * takes longer as the inventory grows. A checkpoint writes a new snapshot and empties the log,
+ * so the next start has less to replay.
+ * Setting the inventory.store system property to "h2" keeps it in an embedded H2 database
+ * instead, through JdbcInventoryStore. Opening loads the database into Inventory a page at a time
+ * and a StoreMirror writes changes back as they happen; a checkpoint waits for those writes.
+ */
+public class InventoryStorage implements Closeable {
+
+    /**
+     * The system property that chooses the backend: "log", the default, or "h2".
+     */
+    public static final String STORE_PROPERTY = "inventory.store";
+
+    private static final String SNAPSHOT_FILE = "inventory.snapshot";
+    private static final String LOG_FILE = "inventory.log";
+    private static final String DATABASE_FILE = "inventory";
+
+    private final Path snapshotFile;
+    private final MutationLog log;
+    private final StoreMirror mirror;
+
+    private InventoryStorage(Path snapshotFile, MutationLog log, StoreMirror mirror) {
+        this.snapshotFile = snapshotFile;
+        this.log = log;
+        this.mirror = mirror;
+    }
+
+    /**
+     * Loads the inventory from a directory and starts recording changes to it.
+     * Inventory should be empty when this is called.
+     * @param directory The directory holding the snapshot and the log. It is created if it does not exist.
+     * @return The open storage.
+     * @throws IOException If the files cannot be read.
+     */
+    public static InventoryStorage open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String backend = System.getProperty(STORE_PROPERTY, "log");
+        if (backend.equals("h2")) {
+            try {
+                JdbcInventoryStore store = JdbcInventoryStore.open(directory.resolve(DATABASE_FILE));
+                try {
+                    return new InventoryStorage(null, null, StoreMirror.open(store));
+                } catch (RuntimeException e) {
+                    store.close();
+                    throw e;
+                }
+            } catch (StoreException e) {
+                throw new IOException(e.getMessage(), e.getCause());
+            }
+        } else if (!backend.equals("log")) {
+            throw new IOException("Unknown " + STORE_PROPERTY + " '" + backend + "'. Expected log or h2.");
+        }
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        SnapshotFile snapshot = Files.exists(snapshotFile) ? SnapshotFile.open(snapshotFile) : null;
+        MutationLog log = MutationLog.open(directory.resolve(LOG_FILE), snapshot);
+        return new InventoryStorage(snapshotFile, log, null);
+    }
+
+    /**
+     * Writes every part and product to a new snapshot and empties the log.
+     * Other threads cannot change the inventory until the checkpoint finishes.
+     * With the H2 backend this only waits until every change so far is in the database.
+     * @throws IOException If the snapshot, the log or the database cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        if (mirror != null) {
+            mirror.sync();
+            return;
+        }
+        try {
+            Inventory.runExclusive(() -> {
+                try {
+                    List<Part> parts = Inventory.copyParts();
+                    List<Product> products = Inventory.copyProducts();
+                    int nextGeneration = log.getGeneration() + 1;
+                    SnapshotFile.write(snapshotFile, parts, products, nextGeneration);
+                    log.reset(nextGeneration);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Retrieves the mutation log.
+     * @return The log, or null with the H2 backend.
+     */
+    public MutationLog getLog() {
+        return log;
+    }
+
+    /**
+     * Writes any changes still queued and closes the log or the database.
+     * @throws IOException If the log or the database could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (mirror != null) {
+            mirror.close();
+        } else {
+            log.close();
+        }
+    }
+}
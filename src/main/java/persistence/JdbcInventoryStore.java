@@ -0,0 +1,552 @@
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.InventoryStore;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+import model.StoreException;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The JdbcInventoryStore class is an InventoryStore kept in an embedded H2 database file.
+ * Nothing is held in memory between calls, so the catalog can be larger than the heap.
+ * Lookups by id use the primary keys and name searches use an index on name; batches are
+ * written with JDBC batching inside one transaction.
+ * Pages are read in id order by seeking from the id of a row next to the page when the caller
+ * has one, with a descending index on id for reading backwards. H2 can only reach a position by
+ * stepping over the rows before it, so a page with no known neighbour costs a scan up to its offset.
+ * Every statement is prepared once when the store is opened. The store uses one connection,
+ * and its methods are synchronized so it can be shared between threads.
+ * Parts and products returned by the store are new objects each time. Changing one does not
+ * change the store until it is passed to updatePart or updateProduct.
+ * InventoryStorage uses this store, through StoreMirror, when the inventory.store system
+ * property is "h2".
+ */
+public class JdbcInventoryStore implements InventoryStore {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final byte PLAIN = 0;
+    private static final byte IN_HOUSE = 1;
+    private static final byte OUTSOURCED = 2;
+
+    private static final String PART_COLUMNS = "id, kind, name, price, stock, min_stock, max_stock, machine_id, company_name";
+    private static final String PRODUCT_COLUMNS = "id, name, price, stock, min_stock, max_stock";
+
+    private final Connection connection;
+    private final PreparedStatement selectPart;
+    private final PreparedStatement selectPartsByName;
+    private final PreparedStatement selectPartPage;
+    private final PreparedStatement selectPartPageAfter;
+    private final PreparedStatement selectPartPageBefore;
+    private final PreparedStatement insertPart;
+    private final PreparedStatement updatePart;
+    private final PreparedStatement deletePart;
+    private final PreparedStatement selectProduct;
+    private final PreparedStatement selectProductsByName;
+    private final PreparedStatement selectProductPage;
+    private final PreparedStatement selectProductPageAfter;
+    private final PreparedStatement selectProductPageBefore;
+    private final PreparedStatement selectAssociatedParts;
+    private final PreparedStatement insertProduct;
+    private final PreparedStatement updateProduct;
+    private final PreparedStatement deleteProduct;
+    private final PreparedStatement insertAssociation;
+    private final PreparedStatement deleteAssociations;
+    private final PreparedStatement countParts;
+    private final PreparedStatement countProducts;
+
+    /**
+     * Opens the store in an H2 database file, creating the file and tables if needed.
+     * @param file The database file, without H2's .mv.db extension.
+     * @return The open store.
+     */
+    public static JdbcInventoryStore open(Path file) {
+        return new JdbcInventoryStore("jdbc:h2:file:" + file.toAbsolutePath());
+    }
+
+    /**
+     * Opens the store on a JDBC URL, creating the tables if needed.
+     * @param url The JDBC URL of the database.
+     */
+    public JdbcInventoryStore(String url) {
+        try {
+            connection = DriverManager.getConnection(url);
+            createSchema();
+            selectPart = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM parts WHERE id = ?");
+            selectPartsByName = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM parts WHERE name LIKE ? ESCAPE '\\' ORDER BY id");
+            selectPartPage = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM parts ORDER BY id LIMIT ? OFFSET ?");
+            selectPartPageAfter = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM parts WHERE id > ? ORDER BY id LIMIT ?");
+            selectPartPageBefore = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM parts WHERE id < ? ORDER BY id DESC LIMIT ?");
+            insertPart = connection.prepareStatement("INSERT INTO parts (" + PART_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            updatePart = connection.prepareStatement("UPDATE parts SET kind = ?, name = ?, price = ?, stock = ?, min_stock = ?, max_stock = ?, machine_id = ?, company_name = ? WHERE id = ?");
+            deletePart = connection.prepareStatement("DELETE FROM parts WHERE id = ?");
+            selectProduct = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS + " FROM products WHERE id = ?");
+            selectProductsByName = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS + " FROM products WHERE name LIKE ? ESCAPE '\\' ORDER BY id");
+            selectProductPage = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS + " FROM products ORDER BY id LIMIT ? OFFSET ?");
+            selectProductPageAfter = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS + " FROM products WHERE id > ? ORDER BY id LIMIT ?");
+            selectProductPageBefore = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS + " FROM products WHERE id < ? ORDER BY id DESC LIMIT ?");
+            selectAssociatedParts = connection.prepareStatement("SELECT p.id, p.kind, p.name, p.price, p.stock, p.min_stock, p.max_stock, p.machine_id, p.company_name"
+                    + " FROM product_parts pp JOIN parts p ON p.id = pp.part_id WHERE pp.product_id = ? ORDER BY pp.position");
+            insertProduct = connection.prepareStatement("INSERT INTO products (" + PRODUCT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)");
+            updateProduct = connection.prepareStatement("UPDATE products SET name = ?, price = ?, stock = ?, min_stock = ?, max_stock = ? WHERE id = ?");
+            deleteProduct = connection.prepareStatement("DELETE FROM products WHERE id = ?");
+            insertAssociation = connection.prepareStatement("INSERT INTO product_parts (product_id, position, part_id) VALUES (?, ?, ?)");
+            deleteAssociations = connection.prepareStatement("DELETE FROM product_parts WHERE product_id = ?");
+            countParts = connection.prepareStatement("SELECT COUNT(*) FROM parts");
+            countProducts = connection.prepareStatement("SELECT COUNT(*) FROM products");
+        } catch (SQLException e) {
+            throw new StoreException("Could not open the inventory database.", e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS parts (id INT PRIMARY KEY, kind TINYINT NOT NULL, name VARCHAR NOT NULL,"
+                    + " price DOUBLE PRECISION NOT NULL, stock INT NOT NULL, min_stock INT NOT NULL, max_stock INT NOT NULL,"
+                    + " machine_id INT, company_name VARCHAR)");
+            statement.execute("CREATE INDEX IF NOT EXISTS parts_name ON parts (name)");
+            statement.execute("CREATE INDEX IF NOT EXISTS parts_id_desc ON parts (id DESC)");
+            statement.execute("CREATE TABLE IF NOT EXISTS products (id INT PRIMARY KEY, name VARCHAR NOT NULL,"
+                    + " price DOUBLE PRECISION NOT NULL, stock INT NOT NULL, min_stock INT NOT NULL, max_stock INT NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS products_name ON products (name)");
+            statement.execute("CREATE INDEX IF NOT EXISTS products_id_desc ON products (id DESC)");
+            statement.execute("CREATE TABLE IF NOT EXISTS product_parts (product_id INT NOT NULL, position INT NOT NULL, part_id INT NOT NULL,"
+                    + " PRIMARY KEY (product_id, position))");
+            statement.execute("CREATE INDEX IF NOT EXISTS product_parts_part ON product_parts (part_id)");
+        }
+    }
+
+    @Override
+    public synchronized Part lookupPart(int id) {
+        try {
+            selectPart.setInt(1, id);
+            try (ResultSet rows = selectPart.executeQuery()) {
+                return rows.next() ? readPart(rows) : null;
+            }
+        } catch (SQLException e) {
+            throw new StoreException("Could not look up part " + id + ".", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Part> lookupParts(String name) {
+        try {
+            selectPartsByName.setString(1, containsPattern(name));
+            List<Part> parts = new ArrayList<>();
+            try (ResultSet rows = selectPartsByName.executeQuery()) {
+                while (rows.next()) {
+                    parts.add(readPart(rows));
+                }
+            }
+            return parts;
+        } catch (SQLException e) {
+            throw new StoreException("Could not search parts.", e);
+        }
+    }
+
+    @Override
+    public synchronized Product lookupProduct(int id) {
+        try {
+            selectProduct.setInt(1, id);
+            Product product;
+            try (ResultSet rows = selectProduct.executeQuery()) {
+                if (!rows.next()) {
+                    return null;
+                }
+                product = readProduct(rows);
+            }
+            loadAssociatedParts(product);
+            return product;
+        } catch (SQLException e) {
+            throw new StoreException("Could not look up product " + id + ".", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Product> lookupProducts(String name) {
+        try {
+            selectProductsByName.setString(1, containsPattern(name));
+            List<Product> products = new ArrayList<>();
+            try (ResultSet rows = selectProductsByName.executeQuery()) {
+                while (rows.next()) {
+                    products.add(readProduct(rows));
+                }
+            }
+            for (Product product : products) {
+                loadAssociatedParts(product);
+            }
+            return products;
+        } catch (SQLException e) {
+            throw new StoreException("Could not search products.", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Part> pageParts(int offset, int limit, Part after, Part before) {
+        try {
+            PreparedStatement statement = bindPage(selectPartPage, selectPartPageAfter, selectPartPageBefore,
+                    offset, limit, after != null ? after.getId() : null, before != null ? before.getId() : null);
+            List<Part> parts = new ArrayList<>(limit);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    parts.add(readPart(rows));
+                }
+            }
+            if (statement == selectPartPageBefore) {
+                Collections.reverse(parts);
+            }
+            return parts;
+        } catch (SQLException e) {
+            throw new StoreException("Could not read parts " + offset + " to " + (offset + limit) + ".", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Product> pageProducts(int offset, int limit, Product after, Product before) {
+        try {
+            PreparedStatement statement = bindPage(selectProductPage, selectProductPageAfter, selectProductPageBefore,
+                    offset, limit, after != null ? after.getId() : null, before != null ? before.getId() : null);
+            List<Product> products = new ArrayList<>(limit);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    products.add(readProduct(rows));
+                }
+            }
+            if (statement == selectProductPageBefore) {
+                Collections.reverse(products);
+            }
+            for (Product product : products) {
+                loadAssociatedParts(product);
+            }
+            return products;
+        } catch (SQLException e) {
+            throw new StoreException("Could not read products " + offset + " to " + (offset + limit) + ".", e);
+        }
+    }
+
+    @Override
+    public void addPart(Part part) {
+        addParts(List.of(part));
+    }
+
+    @Override
+    public synchronized void addParts(Collection<? extends Part> parts) {
+        inTransaction("Could not add parts.", () -> {
+            int pending = 0;
+            for (Part part : parts) {
+                bindPart(insertPart, 1, part);
+                insertPart.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    insertPart.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insertPart.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void addProduct(Product product) {
+        addProducts(List.of(product));
+    }
+
+    @Override
+    public synchronized void addProducts(Collection<? extends Product> products) {
+        inTransaction("Could not add products.", () -> {
+            int pending = 0;
+            for (Product product : products) {
+                bindProduct(insertProduct, product);
+                insertProduct.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    insertProduct.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insertProduct.executeBatch();
+            }
+            insertAssociations(products);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean updatePart(Part part) {
+        return updateParts(List.of(part)) > 0;
+    }
+
+    @Override
+    public synchronized int updateParts(Collection<? extends Part> parts) {
+        return inTransaction("Could not update parts.", () -> {
+            int updated = 0;
+            int pending = 0;
+            for (Part part : parts) {
+                bindPartValues(updatePart, 1, part);
+                updatePart.setInt(9, part.getId());
+                updatePart.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    updated += sum(updatePart.executeBatch());
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                updated += sum(updatePart.executeBatch());
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public synchronized boolean updateProduct(Product product) {
+        return inTransaction("Could not update product " + product.getId() + ".", () -> {
+            updateProduct.setString(1, product.getName());
+            updateProduct.setDouble(2, product.getPrice());
+            updateProduct.setInt(3, product.getStock());
+            updateProduct.setInt(4, product.getMin());
+            updateProduct.setInt(5, product.getMax());
+            updateProduct.setInt(6, product.getId());
+            if (updateProduct.executeUpdate() == 0) {
+                return false;
+            }
+            deleteAssociations.setInt(1, product.getId());
+            deleteAssociations.executeUpdate();
+            insertAssociations(List.of(product));
+            return true;
+        });
+    }
+
+    @Override
+    public synchronized boolean deletePart(int id) {
+        return inTransaction("Could not delete part " + id + ".", () -> {
+            deletePart.setInt(1, id);
+            return deletePart.executeUpdate() > 0;
+        });
+    }
+
+    @Override
+    public synchronized boolean deleteProduct(int id) {
+        return inTransaction("Could not delete product " + id + ".", () -> {
+            deleteAssociations.setInt(1, id);
+            deleteAssociations.executeUpdate();
+            deleteProduct.setInt(1, id);
+            return deleteProduct.executeUpdate() > 0;
+        });
+    }
+
+    @Override
+    public synchronized int getPartCount() {
+        return count(countParts);
+    }
+
+    @Override
+    public synchronized int getProductCount() {
+        return count(countProducts);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new StoreException("Could not close the inventory database.", e);
+        }
+    }
+
+    private int count(PreparedStatement statement) {
+        try (ResultSet rows = statement.executeQuery()) {
+            rows.next();
+            return rows.getInt(1);
+        } catch (SQLException e) {
+            throw new StoreException("Could not count rows.", e);
+        }
+    }
+
+    /**
+     * Binds a page query, seeking from a neighbouring id when there is one and skipping rows otherwise.
+     * @param byOffset     The query that skips offset rows.
+     * @param afterQuery   The query that reads forwards from an id.
+     * @param beforeQuery  The query that reads backwards from an id.
+     * @param offset       The position of the first row.
+     * @param limit        The largest number of rows.
+     * @param after        The id of the row before the page, or null if it is not known.
+     * @param before       The id of the row after the page, or null if it is not known.
+     * @return The bound query. Rows read by beforeQuery come back in descending order.
+     * @throws SQLException If a parameter cannot be set.
+     */
+    private static PreparedStatement bindPage(PreparedStatement byOffset, PreparedStatement afterQuery,
+                                              PreparedStatement beforeQuery, int offset, int limit,
+                                              Integer after, Integer before) throws SQLException {
+        if (after != null || before != null) {
+            PreparedStatement statement = after != null ? afterQuery : beforeQuery;
+            statement.setInt(1, after != null ? after : before);
+            statement.setInt(2, limit);
+            return statement;
+        }
+        byOffset.setInt(1, limit);
+        byOffset.setInt(2, offset);
+        return byOffset;
+    }
+
+    private void insertAssociations(Collection<? extends Product> products) throws SQLException {
+        int pending = 0;
+        for (Product product : products) {
+            List<Part> associatedParts = Inventory.copyAssociatedParts(product);
+            for (int position = 0; position < associatedParts.size(); position++) {
+                insertAssociation.setInt(1, product.getId());
+                insertAssociation.setInt(2, position);
+                insertAssociation.setInt(3, associatedParts.get(position).getId());
+                insertAssociation.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    insertAssociation.executeBatch();
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            insertAssociation.executeBatch();
+        }
+    }
+
+    private void loadAssociatedParts(Product product) throws SQLException {
+        selectAssociatedParts.setInt(1, product.getId());
+        List<Part> associatedParts = new ArrayList<>();
+        try (ResultSet rows = selectAssociatedParts.executeQuery()) {
+            while (rows.next()) {
+                associatedParts.add(readPart(rows));
+            }
+        }
+        product.getAllAssociatedParts().setAll(associatedParts);
+    }
+
+    /**
+     * Runs some work in one transaction, rolling it back if it fails.
+     * @param failure The message to report if the work fails.
+     * @param work    The work to run.
+     * @param <T>     The type of result.
+     * @return The result of the work.
+     */
+    private <T> T inTransaction(String failure, Work<T> work) {
+        try {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new StoreException(failure, e);
+        }
+    }
+
+    private static void bindPart(PreparedStatement statement, int first, Part part) throws SQLException {
+        statement.setInt(first, part.getId());
+        bindPartValues(statement, first + 1, part);
+    }
+
+    private static void bindPartValues(PreparedStatement statement, int first, Part part) throws SQLException {
+        byte kind = part instanceof InHouse ? IN_HOUSE : part instanceof Outsourced ? OUTSOURCED : PLAIN;
+        statement.setByte(first, kind);
+        statement.setString(first + 1, part.getName());
+        statement.setDouble(first + 2, part.getPrice());
+        statement.setInt(first + 3, part.getStock());
+        statement.setInt(first + 4, part.getMin());
+        statement.setInt(first + 5, part.getMax());
+        if (kind == IN_HOUSE) {
+            statement.setInt(first + 6, ((InHouse) part).getMachineId());
+        } else {
+            statement.setNull(first + 6, Types.INTEGER);
+        }
+        if (kind == OUTSOURCED) {
+            statement.setString(first + 7, ((Outsourced) part).getCompanyName());
+        } else {
+            statement.setNull(first + 7, Types.VARCHAR);
+        }
+    }
+
+    private static void bindProduct(PreparedStatement statement, Product product) throws SQLException {
+        statement.setInt(1, product.getId());
+        statement.setString(2, product.getName());
+        statement.setDouble(3, product.getPrice());
+        statement.setInt(4, product.getStock());
+        statement.setInt(5, product.getMin());
+        statement.setInt(6, product.getMax());
+    }
+
+    private static Part readPart(ResultSet rows) throws SQLException {
+        int id = rows.getInt(1);
+        byte kind = rows.getByte(2);
+        String name = rows.getString(3);
+        double price = rows.getDouble(4);
+        int stock = rows.getInt(5);
+        int min = rows.getInt(6);
+        int max = rows.getInt(7);
+        switch (kind) {
+            case IN_HOUSE:
+                return new InHouse(id, name, price, stock, min, max, rows.getInt(8));
+            case OUTSOURCED:
+                return new Outsourced(id, name, price, stock, min, max, rows.getString(9));
+            default:
+                return new Part(id, name, price, stock, min, max);
+        }
+    }
+
+    private static Product readProduct(ResultSet rows) throws SQLException {
+        return new Product(rows.getInt(1), rows.getString(2), rows.getDouble(3), rows.getInt(4), rows.getInt(5), rows.getInt(6));
+    }
+
+    /**
+     * Builds a LIKE pattern matching any name containing the text, escaping LIKE's wildcards.
+     * @param text The text to search for.
+     * @return The pattern.
+     */
+    private static String containsPattern(String text) {
+        StringBuilder pattern = new StringBuilder(text.length() + 2).append('%');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Work run inside a transaction.
+     * @param <T> The type of result.
+     */
+    private interface Work<T> {
+        T run() throws SQLException;
+    }
+}
@@ -0,0 +1,169 @@
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JsonCodec class writes parts and products as JSON objects and reads them back.
+ * It is shared by the JSON export and the HTTP API so both use the same field names:
+ * kind, id, name, price, stock, min, max, then machineId for an InHouse part, companyName for
+ * an Outsourced part, or associatedPartIds for a product.
+ */
+public final class JsonCodec {
+
+    private JsonCodec() {
+    }
+
+    /**
+     * Appends a part as a JSON object.
+     * @param out  The text being built.
+     * @param part The part to write.
+     */
+    public static void appendPart(StringBuilder out, Part part) {
+        out.append("{\"kind\":\"").append(part instanceof Outsourced ? CsvFormat.OUTSOURCED : CsvFormat.IN_HOUSE).append('"');
+        appendCommon(out, part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+        if (part instanceof InHouse) {
+            out.append(",\"machineId\":").append(((InHouse) part).getMachineId());
+        } else if (part instanceof Outsourced) {
+            out.append(",\"companyName\":");
+            Json.appendString(out, ((Outsourced) part).getCompanyName());
+        }
+        out.append('}');
+    }
+
+    /**
+     * Appends a product as a JSON object, with its associated parts as ids.
+     * The associated parts are read from a copy taken with Inventory.copyAssociatedParts.
+     * @param out     The text being built.
+     * @param product The product to write.
+     */
+    public static void appendProduct(StringBuilder out, Product product) {
+        out.append("{\"kind\":\"").append(CsvFormat.PRODUCT).append('"');
+        appendCommon(out, product.getId(), product.getName(), product.getPrice(), product.getStock(), product.getMin(), product.getMax());
+        out.append(",\"associatedPartIds\":[");
+        List<Part> associatedParts = Inventory.copyAssociatedParts(product);
+        for (int i = 0; i < associatedParts.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(associatedParts.get(i).getId());
+        }
+        out.append("]}");
+    }
+
+    /**
+     * Reads a part from a parsed JSON object.
+     * @param fields The object's fields.
+     * @param id     The id to give the part. Any id in the object is ignored.
+     * @return The part.
+     * @throws IllegalArgumentException If a field is missing or has the wrong type.
+     */
+    public static Part readPart(Map<?, ?> fields, int id) {
+        String kind = string(fields, "kind", true);
+        String name = string(fields, "name", true);
+        double price = number(fields, "price").doubleValue();
+        int stock = integer(fields, "stock");
+        int min = integer(fields, "min");
+        int max = integer(fields, "max");
+        if (CsvFormat.IN_HOUSE.equalsIgnoreCase(kind)) {
+            return new InHouse(id, name, price, stock, min, max, integer(fields, "machineId"));
+        }
+        if (CsvFormat.OUTSOURCED.equalsIgnoreCase(kind)) {
+            return new Outsourced(id, name, price, stock, min, max, string(fields, "companyName", false));
+        }
+        throw new IllegalArgumentException("Unknown kind '" + kind + "'. Expected InHouse or Outsourced.");
+    }
+
+    /**
+     * Reads a product from a parsed JSON object, without its associated parts.
+     * @param fields The object's fields.
+     * @param id     The id to give the product. Any id in the object is ignored.
+     * @return The product.
+     * @throws IllegalArgumentException If a field is missing or has the wrong type.
+     */
+    public static Product readProduct(Map<?, ?> fields, int id) {
+        return new Product(id, string(fields, "name", true), number(fields, "price").doubleValue(),
+                integer(fields, "stock"), integer(fields, "min"), integer(fields, "max"));
+    }
+
+    /**
+     * Reads the associatedPartIds array of a product object.
+     * @param fields The object's fields.
+     * @return The part ids, or null if the object has no associatedPartIds field.
+     * @throws IllegalArgumentException If the field is not an array of integers.
+     */
+    public static List<Integer> readPartIds(Map<?, ?> fields) {
+        Object value = fields.get("associatedPartIds");
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("associatedPartIds must be an array.");
+        }
+        List<Integer> partIds = new ArrayList<>();
+        for (Object element : (List<?>) value) {
+            if (!(element instanceof Long)) {
+                throw new IllegalArgumentException("associatedPartIds must hold integers.");
+            }
+            partIds.add(toInt((Long) element, "associatedPartIds"));
+        }
+        return partIds;
+    }
+
+    /**
+     * Reads an integer field.
+     * @param fields The object's fields.
+     * @param name   The field name.
+     * @return The value.
+     * @throws IllegalArgumentException If the field is missing or not an integer.
+     */
+    public static int integer(Map<?, ?> fields, String name) {
+        Number value = number(fields, name);
+        if (!(value instanceof Long)) {
+            throw new IllegalArgumentException(name + " must be a whole number.");
+        }
+        return toInt((Long) value, name);
+    }
+
+    private static void appendCommon(StringBuilder out, int id, String name, double price, int stock, int min, int max) {
+        out.append(",\"id\":").append(id).append(",\"name\":");
+        Json.appendString(out, name);
+        out.append(",\"price\":").append(Double.isFinite(price) ? Double.toString(price) : "null")
+                .append(",\"stock\":").append(stock)
+                .append(",\"min\":").append(min)
+                .append(",\"max\":").append(max);
+    }
+
+    private static Number number(Map<?, ?> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(name + " is required and must be a number.");
+        }
+        return (Number) value;
+    }
+
+    private static String string(Map<?, ?> fields, String name, boolean required) {
+        Object value = fields.get(name);
+        if (value == null && !required) {
+            return null;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(name + " is required and must be a string.");
+        }
+        return (String) value;
+    }
+
+    private static int toInt(long value, String name) {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(name + " is out of range.");
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,602 @@
+package persistence;
+
+import model.Inventory;
+import model.InventoryListener;
+import model.Part;
+import model.Product;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * The MutationLog class is a write-ahead log of every change made through Inventory.
+ * Each change is appended as a record framed by its length and CRC32 checksum.
+ * Records are written by a background thread that takes everything queued since its last
+ * write, writes it in one call and forces it to disk once, so many changes share one fsync.
+ * When the log is opened, its records are replayed into Inventory. Replay stops at the first
+ * incomplete or corrupt record, as left by a crash part way through a write, and the log is
+ * truncated there.
+ * The log starts with a generation number. A checkpoint writes a snapshot naming the next
+ * generation and then resets the log to it, so a log left over from before the snapshot is
+ * recognised and discarded instead of being replayed twice.
+ */
+public class MutationLog implements InventoryListener, Closeable {
+
+    private static final byte PART_PUT = 1;
+    private static final byte PART_DELETE = 2;
+    private static final byte PRODUCT_PUT = 3;
+    private static final byte PRODUCT_DELETE = 4;
+    private static final byte ASSOCIATION_ADD = 5;
+    private static final byte ASSOCIATION_REMOVE = 6;
+    private static final byte STOCK_CHANGE = 7;
+    private static final byte STOCK_CHANGES = 8;
+
+    private static final int MAGIC = 0x4334384C;
+    private static final int FILE_HEADER_LENGTH = 8;
+    private static final int HEADER_LENGTH = 8;
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+    private static final byte[] STOP = new byte[0];
+
+    private final Path file;
+    private final FileChannel channel;
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private int generation;
+    private long appended;
+    private long written;
+    private IOException failure;
+    private boolean closed;
+
+    private MutationLog(Path file, FileChannel channel, int generation) {
+        this.file = file;
+        this.channel = channel;
+        this.generation = generation;
+        this.writer = new Thread(this::writeLoop, "inventory-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens a log, replays it into Inventory and starts recording changes.
+     * Inventory should be empty when this is called.
+     * @param file The log file. It is created if it does not exist.
+     * @return The open log.
+     * @throws IOException If the log cannot be opened or read.
+     */
+    public static MutationLog open(Path file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Loads a snapshot, replays the log on top of it into Inventory and starts recording changes.
+     * The snapshot and the log are folded together before anything is added, so each part and
+     * product reaches Inventory once, in one bulk add.
+     * Inventory should be empty when this is called.
+     * @param file     The log file. It is created if it does not exist.
+     * @param snapshot The snapshot the log follows, or null to start from nothing.
+     * @return The open log.
+     * @throws IOException If the log or the snapshot cannot be read.
+     */
+    public static MutationLog open(Path file, SnapshotFile snapshot) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        int snapshotGeneration = snapshot != null ? snapshot.getLogGeneration() : 1;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int generation;
+        try {
+            State state = new State(snapshot);
+            generation = readGeneration(channel);
+            long end;
+            if (generation < snapshotGeneration) {
+                generation = snapshotGeneration;
+                end = FILE_HEADER_LENGTH;
+                channel.truncate(0);
+                writeHeader(channel, generation);
+            } else {
+                end = replay(channel, state);
+            }
+            if (channel.size() > end) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            state.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        MutationLog log = new MutationLog(file, channel, generation);
+        log.writer.start();
+        Inventory.addListener(log);
+        return log;
+    }
+
+    /**
+     * Retrieves the file the log is written to.
+     * @return The log file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Retrieves the generation of the log.
+     * @return The generation.
+     */
+    public synchronized int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Empties the log and moves it to a new generation, after a snapshot holding every
+     * change recorded so far has been written.
+     * The caller must stop other threads from changing Inventory until this returns,
+     * for example with Inventory.runExclusive.
+     * @param newGeneration The generation the snapshot names.
+     * @throws IOException If the log cannot be written.
+     */
+    public void reset(int newGeneration) throws IOException {
+        sync();
+        synchronized (this) {
+            channel.truncate(0);
+            writeHeader(channel, newGeneration);
+            channel.position(FILE_HEADER_LENGTH);
+            generation = newGeneration;
+        }
+    }
+
+    /**
+     * Waits until every change recorded so far is on disk.
+     * @throws IOException If the log could not be written.
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            long target = appended;
+            while (written < target && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the log to be written.", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Stops recording changes, writes everything still queued and closes the file.
+     * @throws IOException If the log could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        Inventory.removeListener(this);
+        try {
+            sync();
+        } finally {
+            queue.add(STOP);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        append(PART_PUT, out -> RecordCodec.writePart(out, part));
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        append(PART_PUT, out -> RecordCodec.writePart(out, newPart));
+    }
+
+    @Override
+    public void partDeleted(Part part) {
+        append(PART_DELETE, out -> out.writeInt(part.getId()));
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        append(PRODUCT_PUT, out -> RecordCodec.writeProduct(out, product));
+    }
+
+    @Override
+    public void productUpdated(Product oldProduct, Product newProduct) {
+        append(PRODUCT_PUT, out -> RecordCodec.writeProduct(out, newProduct));
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        append(PRODUCT_DELETE, out -> out.writeInt(product.getId()));
+    }
+
+    @Override
+    public void associatedPartAdded(Product product, Part part) {
+        append(ASSOCIATION_ADD, out -> {
+            out.writeInt(product.getId());
+            out.writeInt(part.getId());
+        });
+    }
+
+    @Override
+    public void associatedPartRemoved(Product product, Part part) {
+        append(ASSOCIATION_REMOVE, out -> {
+            out.writeInt(product.getId());
+            out.writeInt(part.getId());
+        });
+    }
+
+    /**
+     * Records a stock change as a delta. Stock changes can reach the log out of order,
+     * but deltas give the same total in any order.
+     */
+    @Override
+    public void stockChanged(Part part, int oldStock, int newStock) {
+        append(STOCK_CHANGE, out -> {
+            out.writeInt(part.getId());
+            out.writeInt(newStock - oldStock);
+        });
+    }
+
+    /**
+     * Records stock changes made together as one record, so a crash keeps all of them or none.
+     */
+    @Override
+    public void stocksChanged(List<Part> parts, int[] oldStocks, int[] newStocks) {
+        append(STOCK_CHANGES, out -> {
+            out.writeInt(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                out.writeInt(parts.get(i).getId());
+                out.writeInt(newStocks[i] - oldStocks[i]);
+            }
+        });
+    }
+
+    /**
+     * Frames a record and queues it for the writer thread.
+     * Inventory calls its listeners in the order changes are applied, so the queue holds
+     * records in the same order, apart from stock deltas, which commute.
+     * @param type    The record type.
+     * @param payload Writes the body of the record.
+     */
+    private void append(byte type, Payload payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            payload.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        int length = record.length - HEADER_LENGTH;
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_LENGTH, length);
+        ByteBuffer header = ByteBuffer.wrap(record, 0, HEADER_LENGTH);
+        header.putInt(length);
+        header.putInt((int) crc.getValue());
+        synchronized (this) {
+            appended++;
+        }
+        queue.add(record);
+    }
+
+    /**
+     * Runs on the writer thread. Writes and forces each group of queued records.
+     */
+    private void writeLoop() {
+        List<byte[]> group = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(group);
+            ByteBuffer[] buffers = new ByteBuffer[group.size()];
+            int count = 0;
+            for (byte[] record : group) {
+                if (record == STOP) {
+                    stopping = true;
+                } else {
+                    buffers[count++] = ByteBuffer.wrap(record);
+                }
+            }
+            group.clear();
+            if (count == 0) {
+                continue;
+            }
+            IOException error = null;
+            try {
+                long remaining = 0;
+                for (int i = 0; i < count; i++) {
+                    remaining += buffers[i].remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers, 0, count);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (this) {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                written += count;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads the generation from the start of the log.
+     * @param channel The log file.
+     * @return The generation, or 0 if the log is empty or was never written completely.
+     * @throws IOException If the file cannot be read or is not a mutation log.
+     */
+    private static int readGeneration(FileChannel channel) throws IOException {
+        if (channel.size() < FILE_HEADER_LENGTH) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+        channel.read(header, 0);
+        if (header.hasRemaining()) {
+            return 0;
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an inventory mutation log.");
+        }
+        return header.getInt();
+    }
+
+    /**
+     * Writes the log header at the start of an empty file and forces it to disk.
+     * @param channel    The log file.
+     * @param generation The generation to write.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeHeader(FileChannel channel, int generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+        header.putInt(MAGIC);
+        header.putInt(generation);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    /**
+     * Folds every intact record after the log header into the replay state.
+     * @param channel The log file.
+     * @param state   The state to fold the records into.
+     * @return The offset just past the last intact record.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long replay(FileChannel channel, State state) throws IOException {
+        long end = FILE_HEADER_LENGTH;
+        channel.position(end);
+        InputStream stream = new BufferedInputStream(Channels.newInputStream(channel), 1 << 16);
+        DataInputStream in = new DataInputStream(stream);
+        long size = channel.size();
+        CRC32 crc = new CRC32();
+        while (end + HEADER_LENGTH <= size) {
+            int length;
+            int checksum;
+            byte[] body;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_LENGTH || end + HEADER_LENGTH + length > size) {
+                    break;
+                }
+                body = new byte[length];
+                in.readFully(body);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            try {
+                state.apply(new DataInputStream(new ByteArrayInputStream(body)));
+            } catch (IOException e) {
+                break;
+            }
+            end += HEADER_LENGTH + length;
+        }
+        return end;
+    }
+
+    /**
+     * The State class holds the parts and products being rebuilt from a snapshot and a log.
+     */
+    private static final class State {
+        private final Map<Integer, Part> parts;
+        private final Map<Integer, Part> deletedParts = new HashMap<>();
+        private final Map<Integer, Product> products;
+        private final Map<Integer, List<Integer>> associations;
+
+        /**
+         * Starts the state from a snapshot.
+         * @param snapshot The snapshot, or null to start empty.
+         * @throws IOException If the snapshot is corrupt.
+         */
+        State(SnapshotFile snapshot) throws IOException {
+            int partCount = snapshot != null ? snapshot.getPartCount() : 0;
+            int productCount = snapshot != null ? snapshot.getProductCount() : 0;
+            parts = new LinkedHashMap<>(capacityFor(partCount));
+            products = new LinkedHashMap<>(capacityFor(productCount));
+            associations = new HashMap<>(capacityFor(productCount));
+            if (snapshot == null) {
+                return;
+            }
+            for (Part part : snapshot.readAllParts()) {
+                parts.put(part.getId(), part);
+            }
+            List<List<Integer>> partIds = new ArrayList<>(snapshot.getProductCount());
+            List<Product> snapshotProducts = snapshot.readAllProducts(partIds);
+            for (int i = 0; i < snapshotProducts.size(); i++) {
+                Product product = snapshotProducts.get(i);
+                products.put(product.getId(), product);
+                associations.put(product.getId(), partIds.get(i));
+            }
+        }
+
+        /**
+         * Applies one log record.
+         * @param record The record body, starting with its type.
+         * @throws IOException If the record is corrupt.
+         */
+        void apply(DataInputStream record) throws IOException {
+            byte type = record.readByte();
+            switch (type) {
+                case PART_PUT: {
+                    Part part = RecordCodec.readPart(record);
+                    parts.put(part.getId(), part);
+                    deletedParts.remove(part.getId());
+                    break;
+                }
+                case PART_DELETE: {
+                    Part part = parts.remove(record.readInt());
+                    if (part != null) {
+                        deletedParts.put(part.getId(), part);
+                    }
+                    break;
+                }
+                case PRODUCT_PUT: {
+                    List<Integer> partIds = new ArrayList<>();
+                    Product product = RecordCodec.readProduct(record, partIds);
+                    products.put(product.getId(), product);
+                    associations.put(product.getId(), partIds);
+                    break;
+                }
+                case PRODUCT_DELETE: {
+                    int productId = record.readInt();
+                    products.remove(productId);
+                    associations.remove(productId);
+                    break;
+                }
+                case ASSOCIATION_ADD: {
+                    List<Integer> partIds = associations.get(record.readInt());
+                    int partId = record.readInt();
+                    if (partIds != null) {
+                        partIds.add(partId);
+                    }
+                    break;
+                }
+                case ASSOCIATION_REMOVE: {
+                    List<Integer> partIds = associations.get(record.readInt());
+                    int partId = record.readInt();
+                    if (partIds != null) {
+                        partIds.removeIf(id -> id == partId);
+                    }
+                    break;
+                }
+                case STOCK_CHANGE:
+                    applyStockDelta(record.readInt(), record.readInt());
+                    break;
+                case STOCK_CHANGES: {
+                    int count = record.readInt();
+                    for (int i = 0; i < count; i++) {
+                        applyStockDelta(record.readInt(), record.readInt());
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown record type " + type + ".");
+            }
+        }
+
+        /**
+         * Adds a logged stock delta to a part.
+         * @param partId The part's id. A part that has since been deleted is skipped.
+         * @param delta  The change in stock level.
+         */
+        private void applyStockDelta(int partId, int delta) {
+            Part part = parts.get(partId);
+            if (part != null) {
+                part.setStock(part.getStock() + delta);
+            }
+        }
+
+        /**
+         * Links each product to its associated parts and adds everything to Inventory.
+         */
+        void load() {
+            for (Product product : products.values()) {
+                List<Part> associatedParts = new ArrayList<>();
+                for (int partId : associations.get(product.getId())) {
+                    Part part = parts.get(partId);
+                    if (part == null) {
+                        part = deletedParts.get(partId);
+                    }
+                    if (part != null) {
+                        associatedParts.add(part);
+                    }
+                }
+                product.getAllAssociatedParts().setAll(associatedParts);
+            }
+            Inventory.addParts(parts.values());
+            Inventory.addProducts(products.values());
+        }
+
+        /**
+         * Works out a hash map capacity that holds a number of entries without resizing.
+         * @param entries The expected number of entries.
+         * @return The initial capacity.
+         */
+        private static int capacityFor(int entries) {
+            return Math.max(16, (int) (entries / 0.75f) + 1);
+        }
+    }
+
+    /**
+     * Writes the body of a record.
+     */
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
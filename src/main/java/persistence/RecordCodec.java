@@ -0,0 +1,248 @@
+package persistence;
+
+import model.InHouse;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The RecordCodec class writes parts and products to a binary stream and reads them back.
+ * It is shared by the mutation log and the snapshot file so both use the same layout.
+ * Records can be read from a stream or straight out of a buffer, such as a mapped file.
+ */
+public final class RecordCodec {
+
+    private static final byte PLAIN = 0;
+    private static final byte IN_HOUSE = 1;
+    private static final byte OUTSOURCED = 2;
+
+    private RecordCodec() {
+    }
+
+    /**
+     * Writes a part.
+     * @param out  The stream to write to.
+     * @param part The part to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writePart(DataOutput out, Part part) throws IOException {
+        if (part instanceof InHouse) {
+            out.writeByte(IN_HOUSE);
+        } else if (part instanceof Outsourced) {
+            out.writeByte(OUTSOURCED);
+        } else {
+            out.writeByte(PLAIN);
+        }
+        out.writeInt(part.getId());
+        writeString(out, part.getName());
+        out.writeDouble(part.getPrice());
+        out.writeInt(part.getStock());
+        out.writeInt(part.getMin());
+        out.writeInt(part.getMax());
+        if (part instanceof InHouse) {
+            out.writeInt(((InHouse) part).getMachineId());
+        } else if (part instanceof Outsourced) {
+            writeString(out, ((Outsourced) part).getCompanyName());
+        }
+    }
+
+    /**
+     * Reads a part written by writePart.
+     * @param in The stream to read from.
+     * @return The part.
+     * @throws IOException If the stream cannot be read or holds an unknown kind of part.
+     */
+    public static Part readPart(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        int id = in.readInt();
+        String name = readString(in);
+        double price = in.readDouble();
+        int stock = in.readInt();
+        int min = in.readInt();
+        int max = in.readInt();
+        switch (kind) {
+            case PLAIN:
+                return new Part(id, name, price, stock, min, max);
+            case IN_HOUSE:
+                return new InHouse(id, name, price, stock, min, max, in.readInt());
+            case OUTSOURCED:
+                return new Outsourced(id, name, price, stock, min, max, readString(in));
+            default:
+                throw new IOException("Unknown part kind " + kind + ".");
+        }
+    }
+
+    /**
+     * Writes a product. Associated parts are written as their ids.
+     * @param out     The stream to write to.
+     * @param product The product to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeProduct(DataOutput out, Product product) throws IOException {
+        out.writeInt(product.getId());
+        writeString(out, product.getName());
+        out.writeDouble(product.getPrice());
+        out.writeInt(product.getStock());
+        out.writeInt(product.getMin());
+        out.writeInt(product.getMax());
+        List<Part> associatedParts = product.getAllAssociatedParts();
+        out.writeInt(associatedParts.size());
+        for (Part part : associatedParts) {
+            out.writeInt(part.getId());
+        }
+    }
+
+    /**
+     * Reads a product written by writeProduct.
+     * The product is returned without associated parts; their ids are added to partIds
+     * so the caller can resolve them.
+     * @param in      The stream to read from.
+     * @param partIds The list the associated part ids are added to.
+     * @return The product.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static Product readProduct(DataInput in, List<Integer> partIds) throws IOException {
+        Product product = new Product(in.readInt(), readString(in), in.readDouble(), in.readInt(), in.readInt(), in.readInt());
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative associated part count.");
+        }
+        for (int i = 0; i < count; i++) {
+            partIds.add(in.readInt());
+        }
+        return product;
+    }
+
+    /**
+     * Reads a product written by writeProduct and discards its associated part ids.
+     * @param in The stream to read from.
+     * @return The product, without associated parts.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static Product readProduct(DataInput in) throws IOException {
+        return readProduct(in, new ArrayList<>());
+    }
+
+    /**
+     * Writes a string as a length followed by UTF-8 bytes. Null is written as length -1.
+     * @param out   The stream to write to.
+     * @param value The string to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     * @param in The stream to read from.
+     * @return The string, or null.
+     * @throws IOException If the stream cannot be read or the length is invalid.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length + ".");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a part written by writePart from a buffer, starting at the buffer's position.
+     * @param in The buffer to read from.
+     * @return The part.
+     * @throws IOException If the buffer ends early or holds an unknown kind of part.
+     */
+    public static Part readPart(ByteBuffer in) throws IOException {
+        try {
+            byte kind = in.get();
+            int id = in.getInt();
+            String name = readString(in);
+            double price = in.getDouble();
+            int stock = in.getInt();
+            int min = in.getInt();
+            int max = in.getInt();
+            switch (kind) {
+                case PLAIN:
+                    return new Part(id, name, price, stock, min, max);
+                case IN_HOUSE:
+                    return new InHouse(id, name, price, stock, min, max, in.getInt());
+                case OUTSOURCED:
+                    return new Outsourced(id, name, price, stock, min, max, readString(in));
+                default:
+                    throw new IOException("Unknown part kind " + kind + ".");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Part record is truncated.", e);
+        }
+    }
+
+    /**
+     * Reads a product written by writeProduct from a buffer, starting at the buffer's position.
+     * @param in      The buffer to read from.
+     * @param partIds The list the associated part ids are added to.
+     * @return The product, without associated parts.
+     * @throws IOException If the buffer ends early.
+     */
+    public static Product readProduct(ByteBuffer in, List<Integer> partIds) throws IOException {
+        try {
+            Product product = new Product(in.getInt(), readString(in), in.getDouble(), in.getInt(), in.getInt(), in.getInt());
+            int count = in.getInt();
+            if (count < 0 || count > in.remaining() / Integer.BYTES) {
+                throw new IOException("Invalid associated part count " + count + ".");
+            }
+            for (int i = 0; i < count; i++) {
+                partIds.add(in.getInt());
+            }
+            return product;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Product record is truncated.", e);
+        }
+    }
+
+    /**
+     * Reads a string written by writeString from a buffer.
+     * @param in The buffer to read from.
+     * @return The string, or null.
+     * @throws IOException If the length is invalid.
+     */
+    public static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Invalid string length " + length + ".");
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,269 @@
+package persistence;
+
+import model.Part;
+import model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The SnapshotFile class reads and writes a binary image of every part and product.
+ * The file starts with a magic number and format version, followed by the part records,
+ * the product records, a table of record offsets and a fixed-size trailer.
+ * Products refer to their associated parts by id.
+ * Because every record's offset is in the table, records can be decoded in any order and from
+ * several threads at once.
+ * Loading a snapshot is not lazy. InventoryStorage decodes every record with readAllParts and
+ * readAllProducts and adds them to Inventory before the window opens, so startup time still
+ * grows with the size of the inventory; the offset table lets the parts be decoded in parallel.
+ * Since every byte is read anyway, the file is read into memory in one pass rather than mapped,
+ * and the channel is closed before open returns. Nothing keeps the file open, so a checkpoint
+ * can replace it even on platforms that refuse to replace a mapped file.
+ */
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x43343832;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+    private static final int TRAILER_LENGTH = 20;
+
+    private final ByteBuffer buffer;
+    private final int logGeneration;
+    private final int partCount;
+    private final int productCount;
+    private final int partTable;
+    private final int productTable;
+
+    private SnapshotFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_LENGTH + TRAILER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an inventory snapshot.");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ".");
+        }
+        int trailer = buffer.limit() - TRAILER_LENGTH;
+        logGeneration = buffer.getInt(trailer);
+        partCount = buffer.getInt(trailer + 4);
+        productCount = buffer.getInt(trailer + 8);
+        partTable = buffer.getInt(trailer + 12);
+        productTable = buffer.getInt(trailer + 16);
+        if (partCount < 0 || productCount < 0
+                || partTable < HEADER_LENGTH || (long) partTable + (long) partCount * Integer.BYTES != productTable
+                || (long) productTable + (long) productCount * Integer.BYTES != trailer) {
+            throw new IOException("Snapshot trailer is corrupt.");
+        }
+    }
+
+    /**
+     * Reads a snapshot file into memory.
+     * @param file The snapshot file.
+     * @return The opened snapshot.
+     * @throws IOException If the file cannot be read or is not a valid snapshot.
+     */
+    public static SnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is larger than 2 GB.");
+            }
+            ByteBuffer contents = ByteBuffer.allocate((int) size);
+            while (contents.hasRemaining()) {
+                if (channel.read(contents) < 0) {
+                    throw new IOException("Snapshot was truncated while it was being read.");
+                }
+            }
+            contents.flip();
+            return new SnapshotFile(contents);
+        }
+    }
+
+    /**
+     * Writes a snapshot. The file is written under a temporary name, forced to disk and then
+     * moved into place, so a crash leaves either the old snapshot or the new one.
+     * @param file          The snapshot file.
+     * @param parts         The parts to write.
+     * @param products      The products to write.
+     * @param logGeneration The generation of the mutation log whose records follow this snapshot.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, Collection<? extends Part> parts, Collection<? extends Product> products, int logGeneration) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            int[] partOffsets = new int[parts.size()];
+            int p = 0;
+            for (Part part : parts) {
+                partOffsets[p++] = offset(out);
+                RecordCodec.writePart(out, part);
+            }
+            int[] productOffsets = new int[products.size()];
+            int q = 0;
+            for (Product product : products) {
+                productOffsets[q++] = offset(out);
+                RecordCodec.writeProduct(out, product);
+            }
+            int partTable = offset(out);
+            for (int offset : partOffsets) {
+                out.writeInt(offset);
+            }
+            int productTable = offset(out);
+            for (int offset : productOffsets) {
+                out.writeInt(offset);
+            }
+            out.writeInt(logGeneration);
+            out.writeInt(partOffsets.length);
+            out.writeInt(productOffsets.length);
+            out.writeInt(partTable);
+            out.writeInt(productTable);
+            out.flush();
+            offset(out);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Retrieves the generation of the mutation log whose records follow this snapshot.
+     * @return The log generation.
+     */
+    public int getLogGeneration() {
+        return logGeneration;
+    }
+
+    /**
+     * Retrieves the number of parts in the snapshot.
+     * @return The part count.
+     */
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Retrieves the number of products in the snapshot.
+     * @return The product count.
+     */
+    public int getProductCount() {
+        return productCount;
+    }
+
+    /**
+     * Decodes one part.
+     * @param index The position of the part in the snapshot.
+     * @return The part.
+     * @throws IOException If the record is corrupt.
+     */
+    public Part readPart(int index) throws IOException {
+        return RecordCodec.readPart(record(partTable, partCount, index));
+    }
+
+    /**
+     * Decodes one product. Its associated parts are returned as ids.
+     * @param index   The position of the product in the snapshot.
+     * @param partIds The list the associated part ids are added to.
+     * @return The product, without associated parts.
+     * @throws IOException If the record is corrupt.
+     */
+    public Product readProduct(int index, List<Integer> partIds) throws IOException {
+        return RecordCodec.readProduct(record(productTable, productCount, index), partIds);
+    }
+
+    /**
+     * Decodes every part, splitting the work across the common fork-join pool.
+     * @return The parts, in the order they were written.
+     * @throws IOException If a record is corrupt.
+     */
+    public List<Part> readAllParts() throws IOException {
+        Part[] parts = new Part[partCount];
+        try {
+            IntStream.range(0, partCount).parallel().forEach(i -> {
+                try {
+                    parts[i] = readPart(i);
+                } catch (IOException e) {
+                    throw new CorruptRecord(e);
+                }
+            });
+        } catch (CorruptRecord e) {
+            throw (IOException) e.getCause();
+        }
+        return List.of(parts);
+    }
+
+    /**
+     * Decodes every product and the ids of its associated parts.
+     * @param partIds The list each product's associated part ids are added to, one list per product.
+     * @return The products, in the order they were written, without associated parts.
+     * @throws IOException If a record is corrupt.
+     */
+    public List<Product> readAllProducts(List<List<Integer>> partIds) throws IOException {
+        List<Product> products = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            List<Integer> ids = new ArrayList<>();
+            products.add(readProduct(i, ids));
+            partIds.add(ids);
+        }
+        return products;
+    }
+
+    /**
+     * Positions an independent view of the buffer at a record.
+     * @param table The offset of the record table.
+     * @param count The number of records in the table.
+     * @param index The position of the record.
+     * @return A buffer positioned at the record.
+     * @throws IOException If the index or the stored offset is out of range.
+     */
+    private ByteBuffer record(int table, int count, int index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+        int offset = buffer.getInt(table + index * Integer.BYTES);
+        if (offset < HEADER_LENGTH || offset >= partTable) {
+            throw new IOException("Snapshot record offset is corrupt.");
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.limit(partTable);
+        view.position(offset);
+        return view;
+    }
+
+    /**
+     * Retrieves the current write offset, refusing to go past what the offset table can hold.
+     * @param out The stream being written.
+     * @return The number of bytes written so far.
+     * @throws IOException If the snapshot has grown larger than 2 GB.
+     */
+    private static int offset(DataOutputStream out) throws IOException {
+        int written = out.size();
+        if (written < 0 || written == Integer.MAX_VALUE) {
+            throw new IOException("Snapshot is larger than 2 GB.");
+        }
+        return written;
+    }
+
+    /**
+     * Carries an IOException out of a parallel stream.
+     */
+    private static final class CorruptRecord extends RuntimeException {
+        CorruptRecord(IOException cause) {
+            super(cause);
+        }
+    }
+}
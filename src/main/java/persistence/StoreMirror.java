@@ -0,0 +1,338 @@
+package persistence;
+
+import model.Inventory;
+import model.InventoryListener;
+import model.InventoryStore;
+import model.Part;
+import model.Product;
+import model.StoreException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The StoreMirror class keeps an InventoryStore in step with Inventory, so the store is where
+ * the inventory is saved between runs.
+ * Opening the mirror loads everything in the store into Inventory a page at a time, then it
+ * listens for changes. Listeners only note which part and product ids changed; a background
+ * thread later reads their current state from Inventory and writes it to the store in batches.
+ * Several changes to one part between writes cost one row update, and the threads changing the
+ * inventory never wait for the database.
+ */
+public class StoreMirror implements InventoryListener, Closeable {
+
+    private static final int PAGE_SIZE = 10_000;
+
+    /**
+     * What has to happen to a row to bring the store up to date.
+     */
+    private enum Change {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    private final InventoryStore store;
+    private final Map<Integer, Change> parts = new LinkedHashMap<>();
+    private final Map<Integer, Change> products = new LinkedHashMap<>();
+    private final Thread writer;
+    private long noted;
+    private long written;
+    private StoreException failure;
+    private boolean closed;
+
+    private StoreMirror(InventoryStore store) {
+        this.store = store;
+        this.writer = new Thread(this::writeLoop, "inventory-store-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Loads every part and product in a store into Inventory and starts writing changes back to it.
+     * Inventory should be empty when this is called. The mirror takes over the store and closes it
+     * when the mirror is closed.
+     * @param store The store to load from and write to.
+     * @return The open mirror.
+     * @throws StoreException If the store cannot be read.
+     */
+    public static StoreMirror open(InventoryStore store) {
+        Part lastPart = null;
+        for (int offset = 0; ; ) {
+            List<Part> page = store.pageParts(offset, PAGE_SIZE, lastPart, null);
+            if (page.isEmpty()) {
+                break;
+            }
+            Inventory.addParts(page);
+            offset += page.size();
+            lastPart = page.get(page.size() - 1);
+        }
+        Product lastProduct = null;
+        for (int offset = 0; ; ) {
+            List<Product> page = store.pageProducts(offset, PAGE_SIZE, lastProduct, null);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Product product : page) {
+                List<Part> associatedParts = new ArrayList<>(product.getAllAssociatedParts().size());
+                for (Part stored : product.getAllAssociatedParts()) {
+                    Part part = Inventory.lookupPart(stored.getId());
+                    if (part != null) {
+                        associatedParts.add(part);
+                    }
+                }
+                product.getAllAssociatedParts().setAll(associatedParts);
+            }
+            Inventory.addProducts(page);
+            offset += page.size();
+            lastProduct = page.get(page.size() - 1);
+        }
+        StoreMirror mirror = new StoreMirror(store);
+        Inventory.addListener(mirror);
+        mirror.writer.start();
+        return mirror;
+    }
+
+    /**
+     * Waits until every change noted so far is in the store.
+     * @throws IOException If the store could not be written.
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            long target = noted;
+            while (written < target && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the store to be written.", e);
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Could not write to the inventory store.", failure);
+            }
+        }
+    }
+
+    /**
+     * Stops listening for changes, writes everything still noted and closes the store.
+     * @throws IOException If the store could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        Inventory.removeListener(this);
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            store.close();
+        }
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        notePart(part.getId(), Change.ADD);
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        if (oldPart.getId() != newPart.getId()) {
+            notePart(oldPart.getId(), Change.DELETE);
+        }
+        notePart(newPart.getId(), Change.UPDATE);
+    }
+
+    @Override
+    public void partDeleted(Part part) {
+        notePart(part.getId(), Change.DELETE);
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        noteProduct(product.getId(), Change.ADD);
+    }
+
+    @Override
+    public void productUpdated(Product oldProduct, Product newProduct) {
+        if (oldProduct.getId() != newProduct.getId()) {
+            noteProduct(oldProduct.getId(), Change.DELETE);
+        }
+        noteProduct(newProduct.getId(), Change.UPDATE);
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        noteProduct(product.getId(), Change.DELETE);
+    }
+
+    @Override
+    public void associatedPartAdded(Product product, Part part) {
+        noteProduct(product.getId(), Change.UPDATE);
+    }
+
+    @Override
+    public void associatedPartRemoved(Product product, Part part) {
+        noteProduct(product.getId(), Change.UPDATE);
+    }
+
+    /**
+     * Notes the part as changed. Only the id is kept, since the writer stores the part's
+     * stock level as it is when written, so the order of stock changes does not matter.
+     */
+    @Override
+    public void stockChanged(Part part, int oldStock, int newStock) {
+        notePart(part.getId(), Change.UPDATE);
+    }
+
+    @Override
+    public void stocksChanged(List<Part> changed, int[] oldStocks, int[] newStocks) {
+        synchronized (this) {
+            for (Part part : changed) {
+                note(parts, part.getId(), Change.UPDATE);
+            }
+        }
+    }
+
+    private synchronized void notePart(int id, Change change) {
+        note(parts, id, change);
+    }
+
+    private synchronized void noteProduct(int id, Change change) {
+        note(products, id, change);
+    }
+
+    /**
+     * Folds a change into the one already noted for a row. A row added and deleted before
+     * being written is dropped; a row deleted and added again only needs updating.
+     * @param pending The changes noted for parts or for products.
+     * @param id      The id of the row.
+     * @param change  The new change.
+     */
+    private void note(Map<Integer, Change> pending, int id, Change change) {
+        Change previous = pending.get(id);
+        if (previous == Change.ADD && change == Change.DELETE) {
+            pending.remove(id);
+        } else if (previous == Change.ADD) {
+            pending.put(id, Change.ADD);
+        } else if (previous != null && change != Change.DELETE) {
+            pending.put(id, Change.UPDATE);
+        } else {
+            pending.put(id, change);
+        }
+        noted++;
+        notifyAll();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Map<Integer, Change> partChanges;
+            Map<Integer, Change> productChanges;
+            long target;
+            synchronized (this) {
+                while (parts.isEmpty() && products.isEmpty() && written == noted && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Keep going until closed.
+                    }
+                }
+                if (closed && parts.isEmpty() && products.isEmpty()) {
+                    return;
+                }
+                partChanges = new LinkedHashMap<>(parts);
+                productChanges = new LinkedHashMap<>(products);
+                parts.clear();
+                products.clear();
+                target = noted;
+            }
+            StoreException error = null;
+            try {
+                writeParts(partChanges);
+                writeProducts(productChanges);
+            } catch (StoreException e) {
+                error = e;
+            }
+            synchronized (this) {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                written = target;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes the current state of every noted part. A part that is no longer in Inventory is
+     * skipped, since its deletion has been noted for the next write.
+     * @param changes The parts' ids and what happened to them.
+     */
+    private void writeParts(Map<Integer, Change> changes) {
+        List<Part> added = new ArrayList<>();
+        List<Part> updated = new ArrayList<>();
+        for (Map.Entry<Integer, Change> entry : changes.entrySet()) {
+            if (entry.getValue() == Change.DELETE) {
+                store.deletePart(entry.getKey());
+                continue;
+            }
+            Part part = Inventory.lookupPart(entry.getKey());
+            if (part != null) {
+                (entry.getValue() == Change.ADD ? added : updated).add(part);
+            }
+        }
+        if (!added.isEmpty()) {
+            store.addParts(added);
+        }
+        if (!updated.isEmpty() && store.updateParts(updated) < updated.size()) {
+            List<Part> missing = new ArrayList<>();
+            for (Part part : updated) {
+                if (store.lookupPart(part.getId()) == null) {
+                    missing.add(part);
+                }
+            }
+            store.addParts(missing);
+        }
+    }
+
+    /**
+     * Writes the current state of every noted product, with its associated parts.
+     * @param changes The products' ids and what happened to them.
+     */
+    private void writeProducts(Map<Integer, Change> changes) {
+        List<Product> added = new ArrayList<>();
+        for (Map.Entry<Integer, Change> entry : changes.entrySet()) {
+            if (entry.getValue() == Change.DELETE) {
+                store.deleteProduct(entry.getKey());
+                continue;
+            }
+            Product product = Inventory.lookupProduct(entry.getKey());
+            if (product == null) {
+                continue;
+            }
+            if (entry.getValue() == Change.ADD) {
+                added.add(product);
+            } else if (!store.updateProduct(product)) {
+                store.addProduct(product);
+            }
+        }
+        if (!added.isEmpty()) {
+            store.addProducts(added);
+        }
+    }
+}
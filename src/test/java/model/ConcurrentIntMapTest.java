@@ -0,0 +1,137 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests ConcurrentIntMap with threads growing and shrinking its stripes at the same time.
+ */
+class ConcurrentIntMapTest {
+
+    private static final int THREADS = 8;
+    private static final int KEYS_PER_THREAD = 20_000;
+
+    @Test
+    void keepsEveryKeyPutByConcurrentThreads() throws InterruptedException {
+        ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                int key = i * THREADS + thread;
+                map.put(key, key);
+            }
+        });
+        assertEquals(THREADS * KEYS_PER_THREAD, map.size());
+        for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++) {
+            assertEquals(key, map.get(key));
+        }
+    }
+
+    @Test
+    void removesWhileOtherThreadsPut() throws InterruptedException {
+        ConcurrentIntMap<Integer> map = new ConcurrentIntMap<>();
+        // remove compares values by identity, so keep the boxed values that were put.
+        Integer[] values = new Integer[THREADS * KEYS_PER_THREAD];
+        for (int key = 0; key < values.length; key++) {
+            values[key] = key;
+            map.put(key, values[key]);
+        }
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                int key = i * THREADS + thread;
+                if (thread % 2 == 0) {
+                    assertTrue(map.remove(key, values[key]));
+                } else {
+                    map.put(key + THREADS * KEYS_PER_THREAD, key);
+                }
+            }
+        });
+        assertEquals(THREADS * KEYS_PER_THREAD, map.size());
+        for (int key = 0; key < THREADS * KEYS_PER_THREAD; key++) {
+            if (key % THREADS % 2 == 0) {
+                assertNull(map.get(key));
+            } else {
+                assertEquals(key, map.get(key));
+                assertEquals(key, map.get(key + THREADS * KEYS_PER_THREAD));
+            }
+        }
+        AtomicInteger visited = new AtomicInteger();
+        map.forEach((key, value) -> visited.incrementAndGet());
+        assertEquals(map.size(), visited.get());
+    }
+
+    @Test
+    void replacesAndRemovesOnlyTheExpectedValue() {
+        ConcurrentIntMap<String> map = new ConcurrentIntMap<>();
+        String first = new String("a");
+        String second = new String("a");
+        map.put(3, first);
+        assertFalse(map.replace(3, second, "b"));
+        assertTrue(map.replace(3, first, second));
+        assertFalse(map.remove(3, first));
+        assertTrue(map.remove(3, second));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void visitsWithoutHoldingTheStripeLock() throws InterruptedException {
+        ConcurrentIntMap<String> map = new ConcurrentIntMap<>();
+        map.put(1, "a");
+        AtomicBoolean putFinished = new AtomicBoolean();
+        map.forEach((key, value) -> {
+            // A visitor waiting on a writer of the same stripe must not deadlock.
+            Thread writer = new Thread(() -> map.put(key, "b"));
+            writer.start();
+            try {
+                writer.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            putFinished.set(!writer.isAlive());
+        });
+        assertTrue(putFinished.get());
+        assertEquals("b", map.get(1));
+    }
+
+    /**
+     * Runs a task on several threads at once and fails if any of them fails.
+     * @param task The task, given the number of the thread running it.
+     */
+    private static void runConcurrently(ThreadTask task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,83 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests IntMap against a HashMap through growth and removal, where linear probing has to
+ * move entries back into the gaps left behind.
+ */
+class IntMapTest {
+
+    @Test
+    void keepsEveryKeyWhileGrowing() {
+        IntMap<String> map = new IntMap<>();
+        for (int key = -5_000; key < 5_000; key++) {
+            assertNull(map.put(key * 31, "v" + key));
+        }
+        assertEquals(10_000, map.size());
+        for (int key = -5_000; key < 5_000; key++) {
+            assertEquals("v" + key, map.get(key * 31));
+        }
+        assertEquals("v7", map.put(7 * 31, "w7"));
+        assertEquals(10_000, map.size());
+        assertEquals("w7", map.get(7 * 31));
+    }
+
+    @Test
+    void findsKeysPastRemovedOnes() {
+        IntMap<Integer> map = new IntMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            map.put(i * 4096, i);
+            expected.put(i * 4096, i);
+        }
+        for (int i = 0; i < 2_000; i += 3) {
+            assertEquals(i, map.remove(i * 4096));
+            expected.remove(i * 4096);
+        }
+        assertNull(map.remove(1));
+        assertEquals(expected.size(), map.size());
+        for (int i = 0; i < 2_000; i++) {
+            assertEquals(expected.get(i * 4096), map.get(i * 4096));
+            assertEquals(expected.containsKey(i * 4096), map.containsKey(i * 4096));
+        }
+        Map<Integer, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void removesOnlyTheExpectedValue() {
+        IntMap<String> map = new IntMap<>();
+        String value = new String("a");
+        map.put(1, value);
+        assertFalse(map.remove(1, new String("a")));
+        assertSame(value, map.get(1));
+        assertTrue(map.remove(1, value));
+        assertTrue(map.isEmpty());
+        assertFalse(map.remove(1, value));
+    }
+
+    @Test
+    void canBeReusedAfterClear() {
+        IntMap<String> map = new IntMap<>(4);
+        for (int key = 0; key < 100; key++) {
+            map.put(key, "v" + key);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(5));
+        map.put(5, "again");
+        assertEquals("again", map.get(5));
+        assertEquals(1, map.size());
+    }
+}
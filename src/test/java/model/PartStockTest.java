@@ -0,0 +1,106 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that reserving, consuming and receiving part stock from many threads never takes a
+ * part below its minimum and never loses a unit.
+ */
+class PartStockTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20_000;
+
+    private final List<Part> added = new ArrayList<>();
+
+    @AfterEach
+    void removeParts() {
+        Inventory.deleteParts(added);
+    }
+
+    @Test
+    void refusesReservationsBelowMin() {
+        Part part = add(new InHouse(710_001, "Bolt", 0.5, 10, 4, 100, 1));
+        assertTrue(part.reserve(6));
+        assertFalse(part.reserve(1));
+        assertFalse(part.consume(7));
+        assertTrue(part.consume(6));
+        assertEquals(4, part.getStock());
+        assertEquals(0, part.getReserved());
+        assertFalse(part.release(1));
+    }
+
+    @Test
+    void concurrentReserveAndConsumeNeverGoBelowMin() throws InterruptedException {
+        int min = 100;
+        int initialStock = 5_000;
+        Part part = add(new InHouse(710_002, "Washer", 0.1, initialStock, min, 1_000_000, 1));
+        AtomicLong consumed = new AtomicLong();
+        AtomicLong received = new AtomicLong();
+        AtomicBoolean belowMin = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread watcher = new Thread(() -> {
+            while (!done.get()) {
+                if (part.getStock() < min || part.getAvailable() < min) {
+                    belowMin.set(true);
+                }
+            }
+        });
+        watcher.start();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < ROUNDS; i++) {
+                    int quantity = 1 + random.nextInt(20);
+                    if (random.nextInt(10) == 0) {
+                        if (part.receive(quantity)) {
+                            received.addAndGet(quantity);
+                        }
+                    } else if (part.reserve(quantity)) {
+                        if (random.nextBoolean() && part.consume(quantity)) {
+                            consumed.addAndGet(quantity);
+                        } else {
+                            assertTrue(part.release(quantity));
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        watcher.join();
+
+        assertFalse(belowMin.get());
+        assertEquals(0, part.getReserved());
+        assertEquals(initialStock + received.get() - consumed.get(), part.getStock());
+    }
+
+    private Part add(Part part) {
+        Inventory.addPart(part);
+        added.add(part);
+        return part;
+    }
+}
@@ -0,0 +1,70 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that building products from many threads consumes each build's parts all or none and
+ * never takes a part below its minimum.
+ */
+class ProductBuildTest {
+
+    private static final int THREADS = 8;
+
+    private final List<Part> added = new ArrayList<>();
+
+    @AfterEach
+    void removeParts() {
+        Inventory.deleteParts(added);
+    }
+
+    @Test
+    void concurrentBuildsNeverTakePartsBelowMin() throws InterruptedException {
+        int min = 50;
+        Part frame = add(new InHouse(750_001, "Frame", 20, 1_000, min, 10_000, 1));
+        Part wheel = add(new InHouse(750_002, "Wheel", 5, 1_000, min, 10_000, 1));
+        Product bike = new Product(750_001, "Bike", 100, 0, 0, 1_000);
+        bike.addAssociatedPart(frame);
+        bike.addAssociatedPart(wheel);
+        bike.addAssociatedPart(wheel);
+        Inventory.addProduct(bike);
+        try {
+            AtomicLong built = new AtomicLong();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        if (Inventory.buildProduct(bike, 1)) {
+                            built.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // The wheels run out first: (1000 - 50) / 2 bikes can be built from them.
+            assertEquals(475, built.get());
+            assertEquals(1_000 - 475, frame.getStock());
+            assertEquals(min, wheel.getStock());
+            assertEquals(0, frame.getReserved());
+            assertEquals(0, wheel.getReserved());
+            assertEquals(0, Inventory.getBuildableQuantity(bike));
+        } finally {
+            Inventory.deleteProduct(bike);
+        }
+    }
+
+    private Part add(Part part) {
+        Inventory.addPart(part);
+        added.add(part);
+        return part;
+    }
+}
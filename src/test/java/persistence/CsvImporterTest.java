@@ -0,0 +1,57 @@
+package persistence;
+
+import model.Inventory;
+import model.Part;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests that CsvImporter keeps a quoted line break inside its record and reports a bad row
+ * against the line the row starts on.
+ */
+class CsvImporterTest {
+
+    private static final int FIRST_ID = 740_001;
+    private static final int SECOND_ID = 740_002;
+
+    @AfterEach
+    void removeParts() {
+        forget();
+    }
+
+    @Test
+    void reportsErrorsAgainstTheLineARecordStartsOn() throws IOException {
+        String csv = CsvFormat.HEADER + "\n"
+                + "InHouse," + FIRST_ID + ",\"Two\nline name\",1,5,0,10,3\n"
+                + "InHouse," + SECOND_ID + ",Bad,1,50,0,10,3\n";
+
+        ImportReport report = new CsvImporter(1).importFrom(new StringReader(csv));
+
+        assertEquals("Two\nline name", Inventory.lookupPart(FIRST_ID).getName());
+        assertNull(Inventory.lookupPart(SECOND_ID));
+        assertEquals(1, report.getErrorCount());
+        assertEquals(4, report.getErrors().get(0).getLine());
+    }
+
+    /**
+     * Takes this test's parts out of Inventory.
+     */
+    private static void forget() {
+        List<Part> parts = new ArrayList<>();
+        for (int id : new int[] {FIRST_ID, SECOND_ID}) {
+            Part part = Inventory.lookupPart(id);
+            if (part != null) {
+                parts.add(part);
+            }
+        }
+        Inventory.deleteParts(parts);
+    }
+}
@@ -0,0 +1,151 @@
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests that a MutationLog replays every complete record and stops at a damaged tail, as a
+ * crash part way through a write leaves it, and that it keeps appending after the good records.
+ */
+class MutationLogTest {
+
+    private static final int FIRST_ID = 720_001;
+    private static final int SECOND_ID = 720_002;
+    private static final int THIRD_ID = 720_003;
+    private static final int FOURTH_ID = 720_004;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void removeParts() {
+        forget(FIRST_ID, SECOND_ID, THIRD_ID, FOURTH_ID);
+    }
+
+    @Test
+    void replaysEveryRecord() throws IOException {
+        Path file = dir.resolve("inventory.log");
+        try (MutationLog log = MutationLog.open(file)) {
+            Inventory.addPart(new InHouse(FIRST_ID, "Gear", 2.5, 10, 1, 20, 7));
+            Inventory.addPart(new Outsourced(SECOND_ID, "Chain, steel", 4, 5, 0, 10, "Acme \"Parts\""));
+            Inventory.lookupPart(FIRST_ID).receive(3);
+            log.sync();
+        }
+        forget(FIRST_ID, SECOND_ID);
+
+        try (MutationLog log = MutationLog.open(file)) {
+            Part first = Inventory.lookupPart(FIRST_ID);
+            assertNotNull(first);
+            assertEquals(13, first.getStock());
+            assertEquals(7, ((InHouse) first).getMachineId());
+            Outsourced second = (Outsourced) Inventory.lookupPart(SECOND_ID);
+            assertEquals("Chain, steel", second.getName());
+            assertEquals("Acme \"Parts\"", second.getCompanyName());
+        }
+    }
+
+    @Test
+    void dropsATruncatedLastRecord() throws IOException {
+        Path file = dir.resolve("inventory.log");
+        long goodLength = writeThreeParts(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        reopenAndCheckTail(file, goodLength);
+    }
+
+    @Test
+    void dropsALastRecordWithABadChecksum() throws IOException {
+        Path file = dir.resolve("inventory.log");
+        long goodLength = writeThreeParts(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long last = channel.size() - 1;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, last);
+            b.flip();
+            byte flipped = (byte) (b.get() ^ 0x5A);
+            channel.write(ByteBuffer.wrap(new byte[] {flipped}), last);
+        }
+
+        reopenAndCheckTail(file, goodLength);
+    }
+
+    /**
+     * Logs three parts, the last in a record of its own, and takes them out of Inventory
+     * without logging it.
+     * @param file The log file.
+     * @return The length of the log before the third part's record.
+     */
+    private static long writeThreeParts(Path file) throws IOException {
+        long goodLength;
+        try (MutationLog log = MutationLog.open(file)) {
+            Inventory.addPart(new InHouse(FIRST_ID, "Gear", 2.5, 10, 1, 20, 7));
+            Inventory.addPart(new InHouse(SECOND_ID, "Axle", 3, 4, 0, 10, 7));
+            log.sync();
+            goodLength = Files.size(file);
+            Inventory.addPart(new InHouse(THIRD_ID, "Spoke", 0.2, 100, 0, 500, 7));
+            log.sync();
+        }
+        forget(FIRST_ID, SECOND_ID, THIRD_ID);
+        return goodLength;
+    }
+
+    /**
+     * Reopens a log whose third record was damaged, checks that only the first two parts came
+     * back and the log was cut after them, then checks that a record appended afterwards replays.
+     * @param file       The log file.
+     * @param goodLength The length of the log before the damaged record.
+     */
+    private static void reopenAndCheckTail(Path file, long goodLength) throws IOException {
+        try (MutationLog log = MutationLog.open(file)) {
+            assertNotNull(Inventory.lookupPart(FIRST_ID));
+            assertNotNull(Inventory.lookupPart(SECOND_ID));
+            assertNull(Inventory.lookupPart(THIRD_ID));
+            assertEquals(goodLength, Files.size(file));
+            Inventory.addPart(new InHouse(FOURTH_ID, "Pedal", 6, 8, 0, 10, 7));
+            log.sync();
+        }
+        forget(FIRST_ID, SECOND_ID, FOURTH_ID);
+
+        try (MutationLog log = MutationLog.open(file)) {
+            assertNotNull(Inventory.lookupPart(FIRST_ID));
+            assertNotNull(Inventory.lookupPart(SECOND_ID));
+            assertNull(Inventory.lookupPart(THIRD_ID));
+            assertEquals("Pedal", Inventory.lookupPart(FOURTH_ID).getName());
+        }
+    }
+
+    /**
+     * Takes parts out of Inventory, as a restart would, while no log is listening.
+     * @param ids The ids of the parts.
+     */
+    private static void forget(int... ids) {
+        List<Part> parts = new ArrayList<>();
+        for (int id : ids) {
+            Part part = Inventory.lookupPart(id);
+            if (part != null) {
+                parts.add(part);
+            }
+        }
+        Inventory.deleteParts(parts);
+    }
+}